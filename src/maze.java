@@ -1,13 +1,35 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import tester.*;
 import javalib.impworld.*;
@@ -29,6 +51,9 @@ interface ICollection<T> {
   // determines if this ICollection is Empty
   boolean isEmpty();
 
+  // determines how many elements are in this ICollection
+  int size();
+
   // Converts this ICollection into an Iterator of generic type T
   Iterator<T> toIterator();
   
@@ -74,6 +99,11 @@ class Queue<T> implements ICollection<T> {
     return q.isEmpty();
   }
 
+  // determines how many items are in this queue
+  public int size() {
+    return q.size();
+  }
+
   // Converts this Queue into an Iterator of generic type T
   public Iterator<T> toIterator() {
     return q.iterator();
@@ -117,6 +147,11 @@ class Stack<T> implements ICollection<T> {
     return s.isEmpty();
   }
 
+  // determines how many items are in this stack
+  public int size() {
+    return s.size();
+  }
+
   // Converts this Stack into an iterator of generic type T
   public Iterator<T> toIterator() {
     return s.iterator();
@@ -137,6 +172,202 @@ class Stack<T> implements ICollection<T> {
 
 
 
+// Represents a line of ints, popped in an order set by the kind of line it is, without
+// boxing any of them
+interface IIntCollection {
+
+  // removes and retrieves the next int in line
+  int pop();
+
+  // retrieves the next int in line without removing it
+  int peek();
+
+  // adds the given int to the line
+  void add(int value);
+
+  // adds the first count of the given ints to the line, in order
+  void addAll(int[] values, int count);
+
+  // removes the ints next in line into the given array, in the order they are popped,
+  // until it is full or the line is empty. Returns how many were removed.
+  int drain(int[] into);
+
+  // determines how many ints are in line
+  int size();
+
+  // determines if the line is empty
+  boolean isEmpty();
+}
+
+// Represents a Queue of ints, first in first out, held in a ring buffer which doubles
+// when it fills
+class IntQueue implements IIntCollection {
+  private int[] ring;
+  private int head;
+  private int size;
+
+  IntQueue() {
+    this(16);
+  }
+
+  // a queue with room for at least the given number of ints before it grows
+  IntQueue(int capacity) {
+    this.ring = new int[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+  }
+
+  // Removes the first int added to this queue
+  public int pop() {
+    int value = this.peek();
+    this.head = (this.head + 1) & (this.ring.length - 1);
+    this.size -= 1;
+    return value;
+  }
+
+  // Retrieves the first int added to this queue
+  public int peek() {
+    if (this.size == 0) {
+      throw new NoSuchElementException("the queue is empty");
+    }
+    return this.ring[this.head];
+  }
+
+  // adds an int to the back of this queue
+  public void add(int value) {
+    this.fit(this.size + 1);
+    this.ring[(this.head + this.size) & (this.ring.length - 1)] = value;
+    this.size += 1;
+  }
+
+  // adds the first count of the given ints to the back of this queue, in order
+  public void addAll(int[] values, int count) {
+    this.fit(this.size + count);
+    int tail = (this.head + this.size) & (this.ring.length - 1);
+    int first = Math.min(count, this.ring.length - tail);
+    System.arraycopy(values, 0, this.ring, tail, first);
+    System.arraycopy(values, first, this.ring, 0, count - first);
+    this.size += count;
+  }
+
+  // removes the ints at the front of this queue into the given array. Returns how many
+  // were removed.
+  public int drain(int[] into) {
+    int count = Math.min(this.size, into.length);
+    int first = Math.min(count, this.ring.length - this.head);
+    System.arraycopy(this.ring, this.head, into, 0, first);
+    System.arraycopy(this.ring, 0, into, first, count - first);
+    this.head = (this.head + count) & (this.ring.length - 1);
+    this.size -= count;
+    return count;
+  }
+
+  // determines how many ints are in this queue
+  public int size() {
+    return this.size;
+  }
+
+  // determines if this queue is empty
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: doubles the ring until it can hold the given number of ints, unwrapping
+  // what is in it to the start of the new ring
+  void fit(int needed) {
+    if (needed <= this.ring.length) {
+      return;
+    }
+    int length = this.ring.length;
+    while (length < needed) {
+      length *= 2;
+    }
+    int[] bigger = new int[length];
+    int first = Math.min(this.size, this.ring.length - this.head);
+    System.arraycopy(this.ring, this.head, bigger, 0, first);
+    System.arraycopy(this.ring, 0, bigger, first, this.size - first);
+    this.ring = bigger;
+    this.head = 0;
+  }
+}
+
+// Represents a Stack of ints, last in first out, held in an array which doubles when it
+// fills. Only its top moves, so it needs no ring.
+class IntStack implements IIntCollection {
+  private int[] items;
+  private int size;
+
+  IntStack() {
+    this(16);
+  }
+
+  // a stack with room for at least the given number of ints before it grows
+  IntStack(int capacity) {
+    this.items = new int[Math.max(capacity, 1)];
+  }
+
+  // removes and gets the last int added to this stack
+  public int pop() {
+    int value = this.peek();
+    this.size -= 1;
+    return value;
+  }
+
+  // gets the last int added to this stack
+  public int peek() {
+    if (this.size == 0) {
+      throw new NoSuchElementException("the stack is empty");
+    }
+    return this.items[this.size - 1];
+  }
+
+  // adds an int to the top of this stack
+  public void add(int value) {
+    this.fit(this.size + 1);
+    this.items[this.size] = value;
+    this.size += 1;
+  }
+
+  // adds the first count of the given ints to the top of this stack, in order, so the
+  // last of them is popped first
+  public void addAll(int[] values, int count) {
+    this.fit(this.size + count);
+    System.arraycopy(values, 0, this.items, this.size, count);
+    this.size += count;
+  }
+
+  // removes the ints at the top of this stack into the given array, top first. Returns
+  // how many were removed.
+  public int drain(int[] into) {
+    int count = Math.min(this.size, into.length);
+    for (int i = 0; i < count; i += 1) {
+      this.size -= 1;
+      into[i] = this.items[this.size];
+    }
+    return count;
+  }
+
+  // determines how many ints are in this stack
+  public int size() {
+    return this.size;
+  }
+
+  // determines if this stack is empty
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // EFFECT: doubles the array until it can hold the given number of ints
+  void fit(int needed) {
+    if (needed <= this.items.length) {
+      return;
+    }
+    int length = this.items.length;
+    while (length < needed) {
+      length *= 2;
+    }
+    this.items = Arrays.copyOf(this.items, length);
+  }
+}
+
 // Represents an immutable List of three items, all of either the same or different types
 class Triple<A, B, C> {
   private final A first;
@@ -170,10 +401,13 @@ class Triple<A, B, C> {
 class SearchResults {
   private final ICollection<Cell> search;
   private final ArrayList<Cell> optimalPath;
+  // how many cells the search expanded, counted once it has finished
+  private final int expanded;
   
   SearchResults(ArrayList<Cell> optimalPath, ICollection<Cell> search) {
     this.search = search;
     this.optimalPath = optimalPath;
+    this.expanded = search.size();
   }
   
   //determines the result of the search
@@ -187,6 +421,123 @@ class SearchResults {
   ArrayList<Cell> determineSolution() {
     return optimalPath;
   }
+
+  // determines how many cells the search expanded, counting the exit it stopped at
+  int expanded() {
+    return this.expanded;
+  }
+}
+
+// A search through a Maze from the start to the finish, depth first or breadth first,
+// which only moves on when asked for the next cell it visits. Nothing is searched
+// until the first cell is asked for, and the cells visited are not kept, so it can be
+// watched while it runs. Cells are handled by their index into the walls of the Maze:
+// a bitset marks the visited cells, an int[] holds the parent of each cell, and the
+// work-list is an IntStack or an IntQueue which only grows to fit the frontier.
+class SearchStream implements Iterator<Cell> {
+  private final Maze maze;
+  private final CompactMaze walls;
+  private final boolean depthFirst;
+  private final int target;
+  private final long[] visited;
+  private final int[] parent;
+  private final int[] neighbors;
+  private final IIntCollection work;
+  private int expanded;
+  private boolean found;
+
+  SearchStream(Maze maze, boolean depthFirst) {
+    this.maze = maze;
+    this.walls = maze.walls();
+    this.depthFirst = depthFirst;
+    this.target = this.walls.cells() - 1;
+    this.visited = new long[(this.walls.cells() + 63) >>> 6];
+    this.parent = new int[this.walls.cells()];
+    this.neighbors = new int[4];
+    if (depthFirst) {
+      this.work = new IntStack(64);
+    }
+    else {
+      this.work = new IntQueue(64);
+    }
+    this.parent[0] = -1;
+    this.work.add(0);
+    if (!depthFirst) {
+      this.visited[0] |= 1L;
+    }
+  }
+
+  // is there another cell to visit before the exit is reached?
+  public boolean hasNext() {
+    // a stack may hold the same cell more than once, so the copies of cells already
+    // visited are dropped first
+    while (this.depthFirst && !this.work.isEmpty() && this.isVisited(this.work.peek())) {
+      this.work.pop();
+    }
+    return !this.found && !this.work.isEmpty();
+  }
+
+  // EFFECT: visits the next cell of the search, adding its unvisited neighbors to the
+  // work-list unless it is the exit. Returns the cell visited.
+  public Cell next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException("the search is over");
+    }
+    int next = this.work.pop();
+    if (this.depthFirst) {
+      this.visited[next >>> 6] |= 1L << next;
+    }
+    this.expanded += 1;
+    if (next == this.target) {
+      this.found = true;
+      return this.maze.cellAt(next);
+    }
+
+    int count = this.walls.connectingCells(next, this.neighbors);
+    int unvisited = 0;
+    for (int i = 0; i < count; i += 1) {
+      int c = this.neighbors[i];
+      if (this.isVisited(c)) {
+        continue;
+      }
+      // the last push of a cell is the one a stack pops first, and the first push
+      // is the one a queue pops first (there is only ever one)
+      this.parent[c] = next;
+      if (!this.depthFirst) {
+        this.visited[c >>> 6] |= 1L << c;
+      }
+      this.neighbors[unvisited] = c;
+      unvisited += 1;
+    }
+    this.work.addAll(this.neighbors, unvisited);
+    return this.maze.cellAt(next);
+  }
+
+  // has the given cell been visited (or, breadth first, queued)?
+  boolean isVisited(int cell) {
+    return (this.visited[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  // determines how many cells have been visited so far
+  int expanded() {
+    return this.expanded;
+  }
+
+  // EFFECT: runs the rest of the search if it has not reached the exit yet, then
+  // returns the path from the start to the finish
+  ArrayList<Cell> solution() {
+    while (this.hasNext()) {
+      this.next();
+    }
+    if (!this.found) {
+      throw new RuntimeException("no path exists");
+    }
+    ArrayList<Cell> path = new ArrayList<>();
+    for (int at = this.parent[this.target]; at >= 0; at = this.parent[at]) {
+      path.add(this.maze.cellAt(at));
+    }
+    return path;
+  }
 }
 
 // Represents a Vertex/Node of a Graph
@@ -195,6 +546,9 @@ class Node {
   // reason for not final : overtime, the color will change, whether it's the path
   // progressing through the cell, or choosing different render modes
   private Color color;
+  // the index of this Node in the UnionFind that is building its maze. For a generated
+  // Maze this is the row-major index of its Cell (y * width + x)
+  private int index;
 
   Node(ArrayList<Edge> conn) {
     this.connections = conn;
@@ -206,6 +560,16 @@ class Node {
     this.color = Color.LIGHT_GRAY;
   }
 
+  // EFFECT: assigns this Node the given index into a UnionFind
+  void assignIndex(int index) {
+    this.index = index;
+  }
+
+  // determines the index of this Node in the UnionFind that owns it
+  int index() {
+    return this.index;
+  }
+
   // EFFECT: Updates the color of this Node
   void updateColor(Color c) {
     if (!(color == color.green || color == color.red)) {
@@ -223,6 +587,12 @@ class Node {
     }
   }
 
+  // EFFECT : removes every edge from the list of connections of this Node, without
+  // telling the neighbors on the other side of those edges
+  void clearEdges() {
+    this.connections.clear();
+  }
+
   // EFFECT : removes this edge from the list of connections
   // in the case that this is called when the edge isn't present, throw an
   // error
@@ -294,6 +664,11 @@ class Edge {
         || (this.from == that.to && this.to == that.from && this.weight == that.weight);
   }
 
+  // determines the weight of this edge
+  int weight() {
+    return this.weight;
+  }
+
   // given an ArrayList of Edges (not including this one), determines the one with
   // the smallest weight. Tie-breakers are determined by order of appearance
   Edge minEdge(ArrayList<Edge> edges) {
@@ -306,6 +681,22 @@ class Edge {
     return min;
   }
 
+  // EFFECT : knocks down the wall between the two nodes of this edge in the given
+  // walls, where each node is keyed by its index
+  void openIn(CompactMaze walls) {
+    walls.openPassage(this.from.index(), this.to.index());
+  }
+
+  // determines the id of the wall this edge knocks down in the given walls
+  int wallIn(CompactMaze walls) {
+    return walls.wallBetween(this.from.index(), this.to.index());
+  }
+
+  // EFFECT : adds this edge to both of the nodes it connects
+  void addToNodes() {
+    this.from.addEdge(this, true);
+  }
+
   // EFFECT : removes this edge from the nodes it's attached to
   void removeFromNodes() {
     this.from.removeEdge(this, true);
@@ -343,16 +734,12 @@ class Edge {
   // determines if the two sides of this edge share the same master in the given
   // unionFind
   boolean sameBlob(UnionFind uf) {
-    return uf.findBlob(from) == uf.findBlob(to);
+    return uf.sameRep(from, to);
   }
 
-  // EFFECT : relinks the from side of this edge's master to be the to sides master
-  // in the given unionFind
+  // EFFECT : unites the blobs of the two sides of this edge in the given unionFind
   void relinkReps(UnionFind uf) {
-    Node fromBlob = uf.findBlob(from);
-    Node toBlob = uf.findBlob(to);
-    
-    uf.updateRep(fromBlob, toBlob);
+    uf.union(from, to);
   }
 
   // returns the position of where the node is in the edge, as determined by
@@ -390,11 +777,10 @@ class Cell {
     this.node.updateColor(c);
   }
   
-  // Connects the given Node to the Node stored in this Cell
-  Edge connectNode(Node to, double bias) {
-    // gets a random int between [1, 200]
-    int randWeight = (int) ((Math.random() + 1) * 201 * bias); 
-    Edge edge = new Edge(this.node, to, randWeight);
+  // Connects the given Node to the Node stored in this Cell with an edge of the given
+  // weight
+  Edge linkNode(Node to, int weight) {
+    Edge edge = new Edge(this.node, to, weight);
 
     this.node.addEdge(edge, true);
     return edge;
@@ -411,278 +797,690 @@ class Cell {
   }
   
   // Renders this Cell, including any walls that border this cell in all four directions.
-  // If a wall should be rendered is determined by if there is a link between this Cell
-  // and the Cell in a direction (north, south, east, west).
-  void renderSelf(ArrayList<ArrayList<Cell>> grid, ComputedPixelImage cpi, int scale) {
+  // If a wall should be rendered is determined by if the given walls have a passage
+  // between this Cell and the Cell in a direction (north, south, east, west).
+  void renderSelf(CompactMaze walls, ComputedPixelImage cpi, int scale) {
     this.node.renderSelf(cpi, scale, this.posn);
-    this.renderWalls(grid, cpi, scale);
+    walls.renderWalls(cpi, this.index(walls), scale);
   }
-  
-  // Renders all of the walls of this Cell.
-  void renderWalls(ArrayList<ArrayList<Cell>> grid, ComputedPixelImage cpi, int scale) { 
-    // De-construct our current position
-    int x = posn.x;
-    int y = posn.y;
-    
-    // Initialize the variables for the neighbors
-    Optional<Cell> up = Optional.empty();
-    Optional<Cell> down = Optional.empty();
-    Optional<Cell> left = Optional.empty();
-    Optional<Cell> right = Optional.empty();
-   
-    // Determine if there is a link in any of the four immediate directions. If there is
-    // a link, update the respective direction's neighbor to what it should be.
-    if (x != 0) {
-      left = this.isLinkedTo(grid.get(y).get(x - 1));
-    }
-    
-    if (y != 0) {
-      up = this.isLinkedTo(grid.get(y - 1).get(x));
+
+  // determines the index of this Cell in the given walls
+  int index(CompactMaze walls) {
+    return walls.index(this.posn);
+  }
+
+  // EFFECT: gives the Node of this Cell the index of this Cell in the given walls
+  void indexNode(CompactMaze walls) {
+    this.node.assignIndex(this.index(walls));
+  }
+
+  // Connects the cells of the input nested array list of Cells, as determined by the
+  // passages in the given walls. Returns the connected list of Cells.
+  ArrayList<Cell> connectingCells(ArrayList<ArrayList<Cell>> maze, CompactMaze walls) {
+    int[] neighbors = new int[4];
+    int count = walls.connectingCells(this.index(walls), neighbors);
+
+    ArrayList<Cell> connected = new ArrayList<>(count);
+    for (int i = 0; i < count; i += 1) {
+      connected.add(maze.get(walls.row(neighbors[i])).get(walls.col(neighbors[i])));
     }
     
-    if (x != grid.get(y).size() - 1) {
-      right = this.isLinkedTo(grid.get(y).get(x + 1));
-    }
+    return connected;
+  }
+
+  // EFFECT: Colors this Cell by updating its color to the target Color provided
+  void colorSelf(Color color) {
+    this.node.updateColor(color);
+  }
+}
 
-    if (y != grid.size() - 1) {
-      down = this.isLinkedTo(grid.get(y + 1).get(x));
+// Represents the current groupings of blobs over the indices [0, size), where blobs are
+// groupings of indices whose representatives are the same. Parents are kept in a
+// primitive array so that large mazes do not need a HashMap entry per Node.
+class IntUnionFind {
+  private final int[] parent;
+  // the number of indices in the blob of each master, only meaningful for masters
+  private final int[] blobSize;
+  private int components;
+
+  IntUnionFind(int size) {
+    this.parent = new int[size];
+    this.blobSize = new int[size];
+    for (int i = 0; i < size; i += 1) {
+      this.parent[i] = i;
+      this.blobSize[i] = 1;
     }
+    this.components = size;
+  }
 
-    // Render each wall, if it should be rendered
-    this.renderUpWall(cpi, up, scale);
+  // determines the number of indices in this IntUnionFind
+  int size() {
+    return this.parent.length;
+  }
 
-    this.renderDownWall(cpi, down, scale);
+  // determines the immediate representative of the given index
+  int parent(int id) {
+    return this.parent[id];
+  }
 
-    this.renderLeftWall(cpi, left, scale);
+  // Determines the master representative of the given index. This walks up the
+  // representatives iteratively (so tall blobs can not overflow the stack), then
+  // points every index on the walked path directly at the master.
+  int find(int id) {
+    int master = id;
+    while (this.parent[master] != master) {
+      master = this.parent[master];
+    }
 
-    this.renderRightWall(cpi, right, scale);
+    int curr = id;
+    while (curr != master) {
+      int next = this.parent[curr];
+      this.parent[curr] = master;
+      curr = next;
+    }
+    return master;
+  }
 
+  // Do the two given indices have the same master representative?
+  boolean sameBlob(int a, int b) {
+    return this.find(a) == this.find(b);
   }
-  
-  // Renders an up-wall of this Cell
-  void renderUpWall(ComputedPixelImage cpi, Optional<Cell> up, int scale) {
-    //our posn holds the cells position in it's cell, not in it's 
 
-    if (up.isEmpty()) {
-      int startX = posn.x * scale;
-      int startY = posn.y * scale;
-      
-      //Draws the segement of the wall, adding an extra "layer" if the cell size
-      //is large enough
-      for (int xMod = 0; xMod < scale; xMod += 1) {
-        cpi.setColorAt(startX + xMod, startY, Color.black); 
-        if (scale > 2) { 
-          cpi.setColorAt(startX + xMod, startY + 1, Color.black); 
-        }
-      }
+  // EFFECT: unites the blobs of the two given indices, hanging the smaller blob under
+  // the master of the larger one. Returns false if they were already in the same blob.
+  boolean union(int a, int b) {
+    int masterA = this.find(a);
+    int masterB = this.find(b);
+    if (masterA == masterB) {
+      return false;
+    }
+
+    if (this.blobSize[masterA] < this.blobSize[masterB]) {
+      int temp = masterA;
+      masterA = masterB;
+      masterB = temp;
     }
+    this.parent[masterB] = masterA;
+    this.blobSize[masterA] += this.blobSize[masterB];
+    this.components -= 1;
+    return true;
   }
 
-  // Renders a down-wall of this Cell
-  void renderDownWall(ComputedPixelImage cpi, Optional<Cell> down, int scale) {
-    if (down.isEmpty()) {
-      int startX = posn.x * scale;
-      int startY = posn.y * scale;
-      
-      //Draws the segement of the wall, adding an extra "layer" if the cell size
-      //is large enough
-      for (int xMod = 0; xMod < scale; xMod += 1) {
-        cpi.setColorAt(startX + xMod, startY + scale - 1, Color.black); 
-        if (scale > 2) { 
-          cpi.setColorAt(startX + xMod, startY + scale - 2, Color.black); 
-        }
-      }
+  // determines how many separate blobs are in this IntUnionFind
+  int components() {
+    return this.components;
+  }
+}
+
+// Represents the current groupings of blobs over the indices [0, size), which any number
+// of threads may find and unite at once without locking. Representatives are only ever
+// changed by compare-and-set, a master is always hung under the smaller of the two
+// masters being united, and finds halve the path they walk as they go.
+class ConcurrentUnionFind {
+  private final AtomicIntegerArray parent;
+  private final AtomicInteger components;
+
+  ConcurrentUnionFind(int size) {
+    this.parent = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i += 1) {
+      this.parent.set(i, i);
     }
+    this.components = new AtomicInteger(size);
   }
 
-  // Renders a left-wall of this Cell
-  void renderLeftWall(ComputedPixelImage cpi, Optional<Cell> left, int scale) {
-    if (left.isEmpty()) {
-      int startX = posn.x * scale;
-      int startY = posn.y * scale;
-      
-      //Draws the segement of the wall, adding an extra "layer" if the cell size
-      //is large enough
-      for (int yMod = 0; yMod < scale; yMod += 1) {
-        cpi.setColorAt(startX, startY + yMod, Color.black); 
-        if (scale > 2) { 
-          cpi.setColorAt(startX + 1, startY + yMod, Color.black); 
-        }
-      }
+  // Determines the master representative of the given index, pointing every other
+  // index on the way at its grandparent
+  int find(int id) {
+    int curr = id;
+    int next = this.parent.get(curr);
+    while (next != curr) {
+      int grand = this.parent.get(next);
+      // if another thread has already moved curr, its new parent is just as good
+      this.parent.compareAndSet(curr, next, grand);
+      curr = grand;
+      next = this.parent.get(curr);
     }
+    return curr;
   }
 
-  // Renders a right-wall of this Cell
-  void renderRightWall(ComputedPixelImage cpi, Optional<Cell> right, int scale) {
-    if (right.isEmpty()) {
-      int startX = posn.x * scale;
-      int startY = posn.y * scale;
-      
-      //Draws the segement of the wall, adding an extra "layer" if the cell size
-      //is large enough
-      for (int yMod = 0; yMod < scale; yMod += 1) {
-        cpi.setColorAt(startX + scale - 1, startY + yMod, Color.black); 
-        if (scale > 2) { 
-          cpi.setColorAt(startX + scale - 2, startY + yMod, Color.black); 
-        }
+  // Do the two given indices have the same master representative?
+  boolean sameBlob(int a, int b) {
+    while (true) {
+      int masterA = this.find(a);
+      int masterB = this.find(b);
+      if (masterA == masterB) {
+        return true;
+      }
+      // masterA may have been hung under another master since it was found
+      if (this.parent.get(masterA) == masterA) {
+        return false;
       }
     }
   }
 
-  // Connects the cells of the input nested array list of Cells. Returns the
-  // connected list of Cells.
-  ArrayList<Cell> connectingCells(ArrayList<ArrayList<Cell>> maze) {
-    ArrayList<Cell> toCheck = new ArrayList<>();
-    if (posn.x != 0) {
-      toCheck.add(maze.get(posn.y).get(posn.x - 1)); //up
-    }
-    if (posn.x != maze.get(0).size() - 1) {
-      toCheck.add(maze.get(posn.y).get(posn.x + 1)); //down
-    }
-    if (posn.y != 0) {
-      toCheck.add(maze.get(posn.y - 1).get(posn.x)); //left
-    }
-    if (posn.y != maze.size() - 1) {
-      toCheck.add(maze.get(posn.y + 1).get(posn.x)); //right
-    }
+  // EFFECT: unites the blobs of the two given indices. Returns false if they were
+  // already in the same blob, so exactly one of any threads racing to unite the same
+  // two blobs sees true.
+  boolean union(int a, int b) {
+    while (true) {
+      int masterA = this.find(a);
+      int masterB = this.find(b);
+      if (masterA == masterB) {
+        return false;
+      }
 
-    ArrayList<Cell> connected = new ArrayList<>();
-    for (Cell c : toCheck) {
-      if (this.isLinkedTo(c).isPresent()) {
-        connected.add(c);
+      int low = Math.min(masterA, masterB);
+      int high = Math.max(masterA, masterB);
+      if (this.parent.compareAndSet(high, high, low)) {
+        this.components.decrementAndGet();
+        return true;
       }
+      // high was hung under another master by another thread, so try again
     }
-    
-    return connected;
   }
 
-  // EFFECT: Colors this Cell by updating its color to the target Color provided
-  void colorSelf(Color color) {
-    this.node.updateColor(color);
+  // determines how many separate blobs are in this ConcurrentUnionFind
+  int components() {
+    return this.components.get();
   }
 }
 
-//Represents an immutable list of two items, all of either the same or different types
-//for some reason java does not have this feature. thanks nintendo
-class CellInfo {
-  private final Optional<Cell> parent;
-  private final Cell child;
- 
-  CellInfo(Cell child, Optional<Cell> parent) {
-    this.parent = parent;
-    this.child = child;
-  }
- 
-  //determines the parent of this cellInfo
-  Optional<Cell> parent() {
-    return this.parent;
+// Represents the current groupings of blobs over the indices [0, size), with the
+// representatives kept in a memory-mapped file rather than on the heap, so that it can
+// hold more indices than the heap could. Finds halve the path they walk as they go, and
+// each union hangs one master under the other by a hash of their indices, which keeps the
+// blobs shallow without having to store a rank for every index.
+class MappedUnionFind {
+  // the number of ints in each mapped segment of the file (1 GiB)
+  static final int SEGMENT_INTS = 1 << 28;
+  private final File file;
+  private final RandomAccessFile raf;
+  private final IntBuffer[] segments;
+  private int components;
+
+  MappedUnionFind(File file, int size) {
+    this.file = file;
+    this.components = size;
+    try {
+      this.raf = new RandomAccessFile(file, "rw");
+      this.raf.setLength(4L * size);
+      FileChannel channel = this.raf.getChannel();
+      this.segments = new IntBuffer[(int) (((long) size + SEGMENT_INTS - 1) / SEGMENT_INTS)];
+      for (int seg = 0; seg < this.segments.length; seg += 1) {
+        long first = (long) seg * SEGMENT_INTS;
+        long ints = Math.min(SEGMENT_INTS, size - first);
+        this.segments[seg] = channel.map(FileChannel.MapMode.READ_WRITE, 4 * first, 4 * ints)
+            .order(ByteOrder.nativeOrder()).asIntBuffer();
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    for (int i = 0; i < size; i += 1) {
+      this.setParent(i, i);
+    }
   }
- 
-  //determines the child of this cellInfo
-  Cell child() {
-    return this.child;
+
+  // determines the immediate representative of the given index
+  int parent(int id) {
+    return this.segments[id / SEGMENT_INTS].get(id % SEGMENT_INTS);
   }
-}
 
+  // EFFECT: sets the immediate representative of the given index
+  void setParent(int id, int rep) {
+    this.segments[id / SEGMENT_INTS].put(id % SEGMENT_INTS, rep);
+  }
 
-// Represents the current groupings of blobs, where blobs are groupings of Node's whose
-// representatives are the same.
-class UnionFind {
-  private final HashMap<Node, Node> env;
-  private final ArrayList<Edge> edgesInTree;
-  private final ArrayList<Edge> workList;
+  // Determines the master representative of the given index, pointing every other
+  // index on the way at its grandparent
+  int find(int id) {
+    int curr = id;
+    int next = this.parent(curr);
+    while (next != curr) {
+      int grand = this.parent(next);
+      this.setParent(curr, grand);
+      curr = grand;
+      next = this.parent(curr);
+    }
+    return curr;
+  }
 
-  // Default constructor for UnionFind
-  UnionFind(ArrayList<Node> nodes, ArrayList<Edge> workList) {
-    new Utils().mergesort(workList, new EdgeCompare());
-    this.env = new Utils().selfHashMap(nodes);
-    this.edgesInTree = new ArrayList<Edge>();
-    this.workList = workList;
+  // EFFECT: unites the blobs of the two given indices. Returns false if they were
+  // already in the same blob.
+  boolean union(int a, int b) {
+    int masterA = this.find(a);
+    int masterB = this.find(b);
+    if (masterA == masterB) {
+      return false;
+    }
+    if (this.linkHash(masterA) < this.linkHash(masterB)) {
+      this.setParent(masterA, masterB);
+    }
+    else {
+      this.setParent(masterB, masterA);
+    }
+    this.components -= 1;
+    return true;
   }
 
-  // Overload constructor for UnionFind in the case that we already have
-  // the nodes in hashMap form
-  UnionFind(HashMap<Node, Node> env, ArrayList<Edge> workList) {
-    new Utils().mergesort(workList, new EdgeCompare());
-    this.env = env;
-    this.edgesInTree = new ArrayList<Edge>();
-    this.workList = workList;
+  // determines the pseudo-random rank a master is linked by, which is a fixed mix of its
+  // index so that the same unions always build the same blobs
+  int linkHash(int id) {
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
   }
 
-  // Finds the representative of this UnionFind given an identifier
-  Node rep(Node id) {
-    return env.get(id);
+  // determines how many separate blobs are in this MappedUnionFind
+  int components() {
+    return this.components;
   }
 
-  // EFFECT: Updates the representative of the provided id (first argument) to the
-  // given identifier (second argument).
-  void updateRep(Node nodeToUpdate, Node newRep) {
-    this.env.replace(nodeToUpdate, newRep);
+  // EFFECT: closes and deletes the file behind this MappedUnionFind, which can not be
+  // used after. A mapping is only released once its buffer is garbage collected, and
+  // some systems (Windows) will not delete a file that is still mapped, so the segments
+  // are dropped first and the file is left to be deleted on exit if it can not be now.
+  void close() {
+    Arrays.fill(this.segments, null);
+    try {
+      this.raf.close();
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (!this.file.delete()) {
+      this.file.deleteOnExit();
+    }
   }
+}
 
-  // Are the blobs contained in this UnionFind all connected?
-  boolean isComplete() {
-    // Construct the keys of this UnionFind as an ArrayList
-    ArrayList<Node> keys = new ArrayList<>();
-    keys.addAll(this.env.keySet());
+// Generates perfect mazes too large for the heap with Kruskal's algorithm, keeping to a
+// fixed heap budget. The weights are drawn a block at a time exactly as EdgeWeights draws
+// them, and each run of them is packed into keys, radix sorted, and written to its own
+// file. The runs are then merged through an IntMinHeap holding the head of every run,
+// cheapest first, into a MappedUnionFind. When there are more runs than the budget can
+// give a buffer each, groups of them are first merged into longer runs. The id of every wall knocked down is written to
+// the output file in the order it was accepted, so the same seed gives the same maze as
+// CompactMaze.kruskals would.
+class ExternalKruskal {
+  // the bytes of heap each wall of a run takes: its weight, its key and the key's scratch
+  static final int BYTES_PER_RUN_EDGE = 20;
+  // the smallest and largest buffers a run is read or written through while merging
+  static final int MIN_MERGE_BUFFER = 1 << 12;
+  static final int MAX_MERGE_BUFFER = 1 << 16;
+  private final File workDir;
+  private final long heapBudget;
+
+  // Constructor where the given heap budget (in bytes) bounds what is kept in memory at
+  // once, and run files and the union-find are kept in the given directory
+  ExternalKruskal(File workDir, long heapBudget) {
+    this.workDir = workDir;
+    this.heapBudget = heapBudget;
+  }
 
-    boolean flag = true;
+  // EFFECT: Writes, to the given output file, the id of every wall knocked down in the
+  // maze of the given dimensions, bias and seed (where wall 2i is right of cell i and wall
+  // 2i + 1 is below it). Returns how many walls were written.
+  long generate(int width, int height, Optional<Boolean> bias, long seed, File output) {
+    long cells = (long) width * height;
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be positive");
+    }
+    if (2 * cells > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Maze has too many walls to index");
+    }
 
-    if (keys.isEmpty()) {
-      return flag;
+    ArrayList<File> runs = this.writeRuns(width, height, bias, seed);
+    try {
+      runs = this.reduceRuns(runs);
+      return this.mergeRuns(runs, width, (int) cells, output);
+    }
+    finally {
+      for (File run : runs) {
+        run.delete();
+      }
     }
+  }
 
-    // Finds the master of the first representative for comparison purposes
-    Node firstRep = findBlob(keys.get(0));
+  // EFFECT: writes the packed keys of every wall to run files, each sorted and each
+  // covering a contiguous range of wall ids. Returns the run files in id order.
+  ArrayList<File> writeRuns(int width, int height, Optional<Boolean> bias, long seed) {
+    int edges = 2 * width * height;
+    // a run is a whole number of weight blocks, so the blocks split the same way
+    long budgetEdges = this.heapBudget / BYTES_PER_RUN_EDGE;
+    int runSize = (int) Math.max(EdgeWeights.BLOCK_SIZE,
+        Math.min(budgetEdges - budgetEdges % EdgeWeights.BLOCK_SIZE, edges));
+
+    Utils u = new Utils();
+    WeightDrawer drawer = new WeightDrawer(width, height, bias);
+    SplittableRandom seeds = new SplittableRandom(seed);
+    int[] weights = new int[runSize];
+    long[] keys = new long[runSize];
+    long[] scratch = new long[runSize];
+    ArrayList<File> runs = new ArrayList<>();
+
+    try {
+      for (int runLo = 0; runLo < edges; runLo += runSize) {
+        int runHi = (int) Math.min((long) runLo + runSize, edges);
+        for (int lo = runLo; lo < runHi; lo += EdgeWeights.BLOCK_SIZE) {
+          drawer.draw(lo, Math.min(lo + EdgeWeights.BLOCK_SIZE, runHi), seeds.split(),
+              weights, lo - runLo);
+        }
 
-    // Is any master different from the first master? If so, flag is set to false.
-    for (Node id : keys) {
-      if (this.findBlob(id) != firstRep) {
-        flag = false;
-        break;
+        int keyCount = 0;
+        for (int edgeId = runLo; edgeId < runHi; edgeId += 1) {
+          // walls on the outside of the maze have no weight
+          if (weights[edgeId - runLo] > 0) {
+            keys[keyCount] = u.packEdgeKey(weights[edgeId - runLo], edgeId);
+            keyCount += 1;
+          }
+        }
+        // the unused tail of keys is cleared so it sorts after nothing it should not
+        Arrays.fill(keys, keyCount, runSize, Long.MAX_VALUE);
+        u.radixsort(keys, scratch, 32);
+
+        File run = File.createTempFile("maze-run", ".keys", this.workDir);
+        runs.add(run);
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+        try {
+          out.writeInt(keyCount);
+          for (int i = 0; i < keyCount; i += 1) {
+            out.writeLong(keys[i]);
+          }
+        }
+        finally {
+          out.close();
+        }
       }
     }
+    catch (IOException e) {
+      for (File run : runs) {
+        run.delete();
+      }
+      throw new UncheckedIOException(e);
+    }
+    return runs;
+  }
 
-    return flag;
+  // determines how many runs can be merged at once with each run, and the stream they
+  // are merged into, given at least MIN_MERGE_BUFFER bytes of the heap budget. This is
+  // never fewer than two, so a budget too small for even that much is overrun.
+  int fanIn() {
+    return (int) Math.max(2, Math.min(1 << 16, this.heapBudget / MIN_MERGE_BUFFER - 1));
   }
 
-  
-  //find the representative of the given node
-  Node findRep(Node n) {
-    return this.env.get(n);
+  // determines the size of the buffer each of the given number of streams gets from the
+  // heap budget while merging
+  int bufferSize(int streams) {
+    return (int) Math.max(MIN_MERGE_BUFFER, Math.min(MAX_MERGE_BUFFER,
+        this.heapBudget / streams));
   }
-  
-  // Determines the master representative of the Node represented by the given key
-  // to this UnionFind. Master is defined as the highest representative.
-  Node findBlob(Node node) {
-    Node thisRep = this.rep(node);
 
-    if (thisRep == node) {
-      return node;
+  // EFFECT: merges consecutive groups of the given runs into single sorted runs, pass
+  // after pass, until no more are left than can be merged at once. The runs merged are
+  // deleted. Returns the runs left, still in wall id order.
+  ArrayList<File> reduceRuns(ArrayList<File> runs) {
+    int fanIn = this.fanIn();
+    ArrayList<File> pass = runs;
+    while (pass.size() > fanIn) {
+      ArrayList<File> merged = new ArrayList<>();
+      try {
+        for (int lo = 0; lo < pass.size(); lo += fanIn) {
+          List<File> group = pass.subList(lo, Math.min(lo + fanIn, pass.size()));
+          File run = File.createTempFile("maze-run", ".keys", this.workDir);
+          merged.add(run);
+          this.mergeGroup(group, run);
+        }
+      }
+      catch (IOException e) {
+        for (File run : merged) {
+          run.delete();
+        }
+        throw new UncheckedIOException(e);
+      }
+      finally {
+        for (File run : pass) {
+          run.delete();
+        }
+      }
+      pass = merged;
     }
-
-    return this.findBlob(thisRep);
+    return pass;
   }
 
-  // Implements Kruskal's algorithm to find the minimum spanning tree
-  //returns the edges that are left
-  ArrayList<Edge> kruskals() {
-    // Termination condition : every step of the loop, the first item of the
-    // worklist is popped this means, so that the workList is not of infinite size,
-    // the while loop will eventually terminate
-    while (!workList.isEmpty()) {
-      Edge cheapest = workList.remove(0);
-
-      if (!cheapest.sameBlob(this)) {
-        edgesInTree.add(cheapest);
-        cheapest.relinkReps(this);
+  // EFFECT: merges the given sorted runs cheapest wall first into the given run file, in
+  // the same format as the runs themselves
+  void mergeGroup(List<File> runs, File output) throws IOException {
+    int runCount = runs.size();
+    DataInputStream[] inputs = new DataInputStream[runCount];
+    int[] remaining = new int[runCount];
+    long[] heads = new long[runCount];
+    IntMinHeap nextRun = new IntMinHeap(runCount);
+    int bufferSize = this.bufferSize(runCount + 1);
+
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(output), bufferSize));
+    try {
+      int keyCount = this.openRuns(runs, bufferSize, inputs, remaining, heads, nextRun);
+      out.writeInt(keyCount);
+      while (!nextRun.isEmpty()) {
+        int run = nextRun.popMin();
+        out.writeLong(heads[run]);
+        this.advance(run, inputs, remaining, heads, nextRun, runCount);
       }
-      else {
-        // implies that the edge needs to be removed from both nodes
-        cheapest.removeFromNodes();
+    }
+    finally {
+      out.close();
+      for (DataInputStream in : inputs) {
+        if (in != null) {
+          in.close();
+        }
       }
     }
-    return edgesInTree;
+  }
+
+  // EFFECT: opens every given run through a buffer of the given size and queues it by its
+  // first key. Returns how many keys the runs hold together.
+  int openRuns(List<File> runs, int bufferSize, DataInputStream[] inputs, int[] remaining,
+      long[] heads, IntMinHeap nextRun) throws IOException {
+    int keyCount = 0;
+    for (int run = 0; run < runs.size(); run += 1) {
+      inputs[run] = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(runs.get(run)), bufferSize));
+      remaining[run] = inputs[run].readInt();
+      keyCount += remaining[run];
+      this.advance(run, inputs, remaining, heads, nextRun, runs.size());
+    }
+    return keyCount;
+  }
+
+  // EFFECT: merges the given sorted runs cheapest wall first, writing the id of every wall
+  // which joins two separate blobs to the given output file, and stopping once the maze
+  // is a single blob. There must be no more runs than fanIn. Returns how many walls were
+  // written.
+  long mergeRuns(ArrayList<File> runs, int width, int cells, File output) {
+    Utils u = new Utils();
+    int runCount = runs.size();
+    DataInputStream[] inputs = new DataInputStream[runCount];
+    int[] remaining = new int[runCount];
+    long[] heads = new long[runCount];
+    // runs are ordered by wall id, so ties in weight go to the earlier run
+    IntMinHeap nextRun = new IntMinHeap(runCount);
+    int bufferSize = this.bufferSize(runCount + 1);
+    MappedUnionFind blobs = null;
+    long written = 0;
+
+    try {
+      File blobFile = File.createTempFile("maze-blobs", ".ints", this.workDir);
+      blobs = new MappedUnionFind(blobFile, cells);
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(output), bufferSize));
+      try {
+        this.openRuns(runs, bufferSize, inputs, remaining, heads, nextRun);
+
+        while (!nextRun.isEmpty() && blobs.components() > 1) {
+          int run = nextRun.popMin();
+          int edgeId = u.keyId(heads[run]);
+          int from = edgeId >>> 1;
+          int to = from + 1;
+          if ((edgeId & 1) == 1) {
+            to = from + width;
+          }
+          if (blobs.union(from, to)) {
+            out.writeInt(edgeId);
+            written += 1;
+          }
+          this.advance(run, inputs, remaining, heads, nextRun, runCount);
+        }
+      }
+      finally {
+        out.close();
+        for (DataInputStream in : inputs) {
+          if (in != null) {
+            in.close();
+          }
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    finally {
+      if (blobs != null) {
+        blobs.close();
+      }
+    }
+    return written;
+  }
+
+  // EFFECT: reads the next key of the given run into heads and queues the run by it,
+  // unless the run has been used up
+  void advance(int run, DataInputStream[] inputs, int[] remaining, long[] heads,
+      IntMinHeap nextRun, int runCount) throws IOException {
+    if (remaining[run] == 0) {
+      return;
+    }
+    remaining[run] -= 1;
+    heads[run] = inputs[run].readLong();
+    nextRun.insertOrDecrease(run, new Utils().keyWeight(heads[run]) * runCount + run);
+  }
+
+  // Reads the walls written by generate back into a CompactMaze of the given dimensions,
+  // for mazes small enough to hold
+  CompactMaze load(File output, int width, int height) {
+    CompactMaze walls = new CompactMaze(width, height);
+    try {
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(output), 1 << 16));
+      try {
+        for (long i = output.length() / 4; i > 0; i -= 1) {
+          int edgeId = in.readInt();
+          int from = edgeId >>> 1;
+          walls.openPassage(from, from + 1 + ((edgeId & 1) * (width - 1)));
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return walls;
+  }
+}
+
+// Represents the current groupings of blobs, where blobs are groupings of Node's whose
+// representatives are the same. Every Node is keyed by its index into an IntUnionFind.
+class UnionFind {
+  private final ArrayList<Node> nodes;
+  private final IntUnionFind blobs;
+  private final ArrayList<Edge> edgesInTree;
+  private final ArrayList<Edge> workList;
+
+  // Default constructor for UnionFind
+  UnionFind(ArrayList<Node> nodes, ArrayList<Edge> workList) {
+    new Utils().sortByWeight(workList);
+    this.nodes = nodes;
+    this.blobs = new IntUnionFind(nodes.size());
+    this.edgesInTree = new ArrayList<Edge>();
+    this.workList = workList;
+    for (int i = 0; i < nodes.size(); i += 1) {
+      nodes.get(i).assignIndex(i);
+    }
+  }
+
+  // Overload constructor for UnionFind in the case that we already have
+  // the nodes in hashMap form
+  UnionFind(HashMap<Node, Node> env, ArrayList<Edge> workList) {
+    this(new ArrayList<Node>(env.keySet()), workList);
+    for (Node id : env.keySet()) {
+      this.union(id, env.get(id));
+    }
+  }
+
+  // Finds the representative of this UnionFind given an identifier
+  Node rep(Node id) {
+    return this.nodes.get(this.blobs.parent(id.index()));
+  }
+
+  // EFFECT: Updates the representative of the provided id (first argument) so that
+  // it is in the same blob as the given identifier (second argument).
+  void updateRep(Node nodeToUpdate, Node newRep) {
+    this.blobs.union(newRep.index(), nodeToUpdate.index());
+  }
+
+  // Are the blobs contained in this UnionFind all connected?
+  boolean isComplete() {
+    return this.blobs.components() <= 1;
+  }
+
+  //find the representative of the given node
+  Node findRep(Node n) {
+    return this.rep(n);
+  }
+  
+  // Determines the master representative of the Node represented by the given key
+  // to this UnionFind. Master is defined as the highest representative.
+  Node findBlob(Node node) {
+    return this.nodes.get(this.blobs.find(node.index()));
+  }
+
+  // Implements Kruskal's algorithm to find the minimum spanning tree
+  //returns the edges that are left
+  ArrayList<Edge> kruskals() {
+    // a spanning tree over n nodes has exactly n - 1 edges, so once that many have
+    // been accepted every edge after the cursor can only join a blob to itself
+    int treeSize = this.nodes.size() - 1;
+
+    // Termination condition : every step of the loop the cursor moves one edge
+    // further along the sorted workList, which is of finite size
+    for (int cursor = 0;
+        cursor < this.workList.size() && this.edgesInTree.size() < treeSize;
+        cursor += 1) {
+      Edge cheapest = this.workList.get(cursor);
+
+      if (!cheapest.sameBlob(this)) {
+        edgesInTree.add(cheapest);
+        cheapest.relinkReps(this);
+      }
+    }
+
+    this.removeRejectedEdges();
+    return edgesInTree;
+  }
+
+  // EFFECT: removes every edge that did not make it into the tree from the nodes of
+  // this UnionFind in a single pass, rather than searching each node's connections
+  // once per rejected edge
+  void removeRejectedEdges() {
+    for (Node n : this.nodes) {
+      n.clearEdges();
+    }
+    for (Edge e : this.edgesInTree) {
+      e.addToNodes();
+    }
   }
 
   // EFFECT: adds the given edge to the edgesInTree in this UnionFind
@@ -690,31 +1488,3384 @@ class UnionFind {
     this.edgesInTree.add(edge);
   }
 
-  // Has the edge provided been since in the edge list contained in this
-  // UnionFind?
-  boolean edgeHasBeenSeen(Edge edge) {
-    return this.edgesInTree.contains(edge);
+  // Has the edge provided been since in the edge list contained in this
+  // UnionFind?
+  boolean edgeHasBeenSeen(Edge edge) {
+    return this.edgesInTree.contains(edge);
+  }
+
+  // Do the two Nodes provided have the same representative?
+  boolean sameRep(Node nodeOne, Node nodeTwo) {
+    return this.blobs.sameBlob(nodeOne.index(), nodeTwo.index());
+  }
+
+  // EFFECT: unites the blob of the nodeToBeChanged passed in with the blob of the
+  // given current representative node.
+  void union(Node currRep, Node nodeToBeChanged) {
+    this.blobs.union(currRep.index(), nodeToBeChanged.index());
+  }
+
+}
+
+// Represents the weights of every wall of a maze, drawn in one bulk pass from a seed.
+// Wall 2i is the wall to the right of cell i and wall 2i + 1 is the wall below it (in
+// row-major order), and walls on the outside of the maze have weight 0. The walls are
+// drawn in fixed-size blocks, each from its own generator split off the seed's generator
+// in block order, so the same seed gives the same weights however many threads draw them.
+class EdgeWeights {
+  // the number of walls drawn from each split generator
+  static final int BLOCK_SIZE = 1 << 16;
+  private final int[] weights;
+
+  // Constructor which draws the weights on the common ForkJoinPool
+  EdgeWeights(int width, int height, Optional<Boolean> bias, long seed) {
+    this(width, height, bias, seed, ForkJoinPool.commonPool());
+  }
+
+  EdgeWeights(int width, int height, Optional<Boolean> bias, long seed, ForkJoinPool pool) {
+    this.weights = new int[2 * width * height];
+    WeightDrawer drawer = new WeightDrawer(width, height, bias);
+
+    SplittableRandom seeds = new SplittableRandom(seed);
+    ArrayList<WeightBlock> blocks = new ArrayList<>();
+    for (int lo = 0; lo < this.weights.length; lo += BLOCK_SIZE) {
+      blocks.add(new WeightBlock(drawer, this.weights, lo,
+          Math.min(lo + BLOCK_SIZE, this.weights.length), seeds.split()));
+    }
+    pool.invoke(new WeightBlocks(blocks));
+  }
+
+  // determines the weight of the wall with the given id
+  int weight(int edgeId) {
+    return this.weights[edgeId];
+  }
+}
+
+// Draws the weights of a range of walls of a maze, for an EdgeWeights or for anything
+// which streams the weights a block at a time instead of keeping them all
+class WeightDrawer {
+  private final int width;
+  private final int height;
+  private final double horizWeight;
+  private final double vertWeight;
+
+  WeightDrawer(int width, int height, Optional<Boolean> bias) {
+    this.width = width;
+    this.height = height;
+
+    // walls between rows are five times heavier under a horizontal bias (true), and walls
+    // between columns are five times heavier under a vertical bias (false)
+    double horizWeight = 1;
+    double vertWeight = 1;
+    if (bias.isPresent()) {
+      if (bias.get()) {
+        vertWeight = 5;
+      }
+      else {
+        horizWeight = 5;
+      }
+    }
+    this.horizWeight = horizWeight;
+    this.vertWeight = vertWeight;
+  }
+
+  // EFFECT: draws the weights of the walls with ids in [lo, hi) from the given generator
+  // into the given array, where the weight of wall lo goes at the given offset
+  void draw(int lo, int hi, SplittableRandom rand, int[] into, int offset) {
+    for (int edgeId = lo; edgeId < hi; edgeId += 1) {
+      int cell = edgeId >>> 1;
+      boolean down = (edgeId & 1) == 1;
+      int weight = 0;
+      if (down && cell / this.width != this.height - 1) {
+        weight = (int) ((rand.nextDouble() + 1) * 201 * vertWeight);
+      }
+      else if (!down && cell % this.width != this.width - 1) {
+        weight = (int) ((rand.nextDouble() + 1) * 201 * horizWeight);
+      }
+      into[edgeId - lo + offset] = weight;
+    }
+  }
+}
+
+// Draws one block of the weights of an EdgeWeights
+class WeightBlock extends RecursiveAction {
+  private final WeightDrawer drawer;
+  private final int[] weights;
+  private final int lo;
+  private final int hi;
+  private final SplittableRandom rand;
+
+  WeightBlock(WeightDrawer drawer, int[] weights, int lo, int hi, SplittableRandom rand) {
+    this.drawer = drawer;
+    this.weights = weights;
+    this.lo = lo;
+    this.hi = hi;
+    this.rand = rand;
+  }
+
+  // EFFECT: draws the weights of this block
+  protected void compute() {
+    this.drawer.draw(lo, hi, rand, weights, lo);
+  }
+}
+
+// Draws every block of an EdgeWeights, forking them across the pool it is invoked in
+class WeightBlocks extends RecursiveAction {
+  private final ArrayList<WeightBlock> blocks;
+
+  WeightBlocks(ArrayList<WeightBlock> blocks) {
+    this.blocks = blocks;
+  }
+
+  // EFFECT: draws the weights of every block
+  protected void compute() {
+    ForkJoinTask.invokeAll(this.blocks);
+  }
+}
+
+// Generates a perfect maze into a CompactMaze on a ForkJoinPool. The cells are split,
+// in row-major order, into tiles of at least a full row whose bounds are multiples of
+// 64, so every tile owns whole words of the wall bitsets and only ever borders the tiles
+// just before and after it. Kruskal's algorithm first runs inside every tile at once,
+// then the seams between tiles are stitched pairwise in a merge tree: the first round
+// stitches tile 0 to 1, 2 to 3, and so on, the next round stitches those pairs together,
+// until one blob is left. The seams of a round never share a blob, so which walls come
+// down depends only on the weights, not on how many threads are used.
+class TiledKruskal implements IMazeGenerator {
+  // the smallest number of cells in a tile when none is given. The tiles decide which
+  // walls come down, so this must not depend on the machine or the pool.
+  static final int DEFAULT_TILE_CELLS = 1 << 16;
+  private final ForkJoinPool pool;
+  // the smallest number of cells in a tile
+  private final int tileCells;
+
+  // Constructor which uses the common ForkJoinPool and tiles of the default size
+  TiledKruskal() {
+    this(ForkJoinPool.commonPool(), 0);
+  }
+
+  // Constructor which uses the given pool and tiles of the given number of cells, or of
+  // DEFAULT_TILE_CELLS if it is not positive
+
+  TiledKruskal(ForkJoinPool pool, int tileCells) {
+    this.pool = pool;
+    this.tileCells = tileCells;
+  }
+
+  // EFFECT: Knocks down walls of the given maze following tiled Kruskal's algorithm
+  // over the weights of the given bias and seed
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    this.generate(walls, new EdgeWeights(walls.width(), walls.height(), bias, seed,
+        this.pool));
+  }
+
+  // EFFECT: Knocks down walls of the given maze, which must have every wall standing,
+  // so that every cell is linked to every other cell by exactly one path
+  void generate(CompactMaze walls, EdgeWeights weights) {
+    int cells = walls.cells();
+    long wanted = this.tileCells;
+    if (wanted <= 0) {
+      wanted = DEFAULT_TILE_CELLS;
+    }
+    // a tile must cover a full row so that walls below it only reach the next tile
+    wanted = Math.max(wanted, walls.width());
+    int tileSize = (int) Math.min((wanted + 63) & ~63L, ((long) cells + 63) & ~63L);
+    int tiles = (int) (((long) cells + tileSize - 1) / tileSize);
+
+    ConcurrentUnionFind blobs = new ConcurrentUnionFind(cells);
+    ArrayList<TileTask> interiors = new ArrayList<>(tiles);
+    for (int tile = 0; tile < tiles; tile += 1) {
+      interiors.add(new TileTask(walls, weights, blobs,
+          tile * tileSize, (int) Math.min((long) (tile + 1) * tileSize, cells), false));
+    }
+    this.pool.invoke(new TileTasks(interiors));
+
+    // in the round with the given stride, the seam after tile k joins the group of
+    // stride tiles ending at k to the group of stride tiles starting at k + 1
+    for (int stride = 1; stride < tiles; stride *= 2) {
+      ArrayList<TileTask> seams = new ArrayList<>();
+      for (int tile = stride - 1; tile + 1 < tiles; tile += 2 * stride) {
+        int lo = tile * tileSize;
+        int hi = (int) Math.min((long) (tile + 1) * tileSize, cells);
+        seams.add(new TileTask(walls, weights, blobs, lo, hi, true));
+      }
+      this.pool.invoke(new TileTasks(seams));
+    }
+  }
+}
+
+// Runs Kruskal's algorithm over either the walls inside one tile of a TiledKruskal, or
+// the walls of the seam between that tile and the next one
+class TileTask extends RecursiveAction {
+  private final CompactMaze walls;
+  private final EdgeWeights weights;
+  private final ConcurrentUnionFind blobs;
+  // the cells of the tile are [lo, hi)
+  private final int lo;
+  private final int hi;
+  // does this task stitch the seam between this tile and the next one?
+  private final boolean seam;
+
+  TileTask(CompactMaze walls, EdgeWeights weights, ConcurrentUnionFind blobs,
+      int lo, int hi, boolean seam) {
+    this.walls = walls;
+    this.weights = weights;
+    this.blobs = blobs;
+    this.lo = lo;
+    this.hi = hi;
+    this.seam = seam;
+  }
+
+  // EFFECT: knocks down the walls of this tile or seam which join two separate blobs,
+  // cheapest first
+  protected void compute() {
+    Utils u = new Utils();
+    int width = walls.width();
+    // only the last row of a tile has walls across the seam after it
+    int start = lo;
+    if (this.seam) {
+      start = Math.max(lo, hi - width);
+    }
+    long[] keys = new long[2 * (hi - start)];
+    int edgeCount = 0;
+
+    for (int index = start; index < hi; index += 1) {
+      int right = index + 1;
+      int down = index + width;
+      boolean hasRight = walls.col(index) != width - 1;
+      boolean hasDown = down < walls.cells();
+      // inside a tile both cells must be in the tile, across a seam the second cell
+      // must be in the next tile
+      if (this.seam) {
+        hasRight = hasRight && right >= hi;
+        hasDown = hasDown && down >= hi;
+      }
+      else {
+        hasRight = hasRight && right < hi;
+        hasDown = hasDown && down < hi;
+      }
+
+      if (hasRight) {
+        keys[edgeCount] = u.packEdgeKey(weights.weight(2 * index), 2 * index);
+        edgeCount += 1;
+      }
+      if (hasDown) {
+        keys[edgeCount] = u.packEdgeKey(weights.weight(2 * index + 1), 2 * index + 1);
+        edgeCount += 1;
+      }
+    }
+    keys = Arrays.copyOf(keys, edgeCount);
+    u.radixsort(keys, new long[edgeCount], 32);
+
+    for (long key : keys) {
+      int edgeId = u.keyId(key);
+      int from = edgeId >>> 1;
+      int to = from + 1;
+      if ((edgeId & 1) == 1) {
+        to = from + width;
+      }
+      if (blobs.union(from, to)) {
+        walls.openPassage(from, to);
+      }
+    }
+  }
+}
+
+// Runs every given TileTask, forking them across the pool it is invoked in
+class TileTasks extends RecursiveAction {
+  private final ArrayList<TileTask> tasks;
+
+  TileTasks(ArrayList<TileTask> tasks) {
+    this.tasks = tasks;
+  }
+
+  // EFFECT: runs every task
+  protected void compute() {
+    ForkJoinTask.invokeAll(this.tasks);
+  }
+}
+
+// Represents an algorithm which carves a perfect maze out of a CompactMaze
+interface IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze, which must have every wall standing, so
+  // that every cell is linked to every other cell by exactly one path (or, for a
+  // BraidGenerator, by at least one). The same bias and seed always knock down the same
+  // walls. A horizontal bias (true) favors passages
+  // between columns and a vertical bias (false) favors passages between rows.
+  void generate(CompactMaze walls, Optional<Boolean> bias, long seed);
+}
+
+// Generates mazes with Kruskal's algorithm over EdgeWeights, giving the same maze for a
+// seed as the Node and Edge based Maze constructor
+class KruskalGenerator implements IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze following Kruskal's algorithm
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    walls.kruskals(new EdgeWeights(walls.width(), walls.height(), bias, seed));
+  }
+}
+
+// Generates mazes by streaming rows from an EllerGenerator into the maze
+class EllerMazeGenerator implements IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze following Eller's algorithm
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    new EllerGenerator(walls.width(), bias, seed).generate(walls.height(), walls);
+  }
+}
+
+// Generates mazes with randomized Prim's algorithm: the tree grows from the start cell by
+// always taking the cheapest wall between a cell in the tree and a cell outside of it.
+// The cells outside of the tree are kept in an IntMinHeap keyed by their cheapest wall.
+class PrimGenerator implements IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze following Prim's algorithm
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    EdgeWeights weights = new EdgeWeights(walls.width(), walls.height(), bias, seed);
+    int cells = walls.cells();
+    long[] inTree = new long[(cells + 63) >>> 6];
+    // the cell of the tree that each cell in the heap would be linked to
+    int[] via = new int[cells];
+    IntMinHeap frontier = new IntMinHeap(cells);
+    int[] neighbors = new int[4];
+
+    int curr = 0;
+    while (true) {
+      inTree[curr >>> 6] |= 1L << curr;
+      int count = walls.allNeighbors(curr, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int next = neighbors[i];
+        if ((inTree[next >>> 6] & (1L << next)) == 0
+            && frontier.insertOrDecrease(next, weights.weight(walls.wallBetween(curr, next)))) {
+          via[next] = curr;
+        }
+      }
+
+      if (frontier.isEmpty()) {
+        return;
+      }
+      curr = frontier.popMin();
+      walls.openPassage(via[curr], curr);
+    }
+  }
+}
+
+// Generates mazes with the recursive backtracker: a random walk that only steps into
+// cells it has not seen, and backs up along its own path whenever it is stuck. The path
+// is kept on an explicit stack of cell indices rather than the call stack.
+class BacktrackerGenerator implements IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze following the recursive backtracker
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    SplittableRandom rand = new SplittableRandom(seed);
+    int cells = walls.cells();
+    long[] seen = new long[(cells + 63) >>> 6];
+    int[] path = new int[cells];
+    int[] neighbors = new int[4];
+    int[] unseen = new int[4];
+
+    int depth = 1;
+    path[0] = 0;
+    seen[0] |= 1L;
+    while (depth > 0) {
+      int curr = path[depth - 1];
+      int count = walls.allNeighbors(curr, neighbors);
+      int unseenCount = 0;
+      for (int i = 0; i < count; i += 1) {
+        if ((seen[neighbors[i] >>> 6] & (1L << neighbors[i])) == 0) {
+          unseen[unseenCount] = neighbors[i];
+          unseenCount += 1;
+        }
+      }
+
+      if (unseenCount == 0) {
+        depth -= 1;
+      }
+      else {
+        int next = walls.biasedChoice(curr, unseen, unseenCount, bias, rand);
+        walls.openPassage(curr, next);
+        seen[next >>> 6] |= 1L << next;
+        path[depth] = next;
+        depth += 1;
+      }
+    }
+  }
+}
+
+// Generates mazes with Wilson's algorithm: from every cell not yet in the tree, take a
+// random walk until the tree is hit, and add the walk to the tree with its loops erased.
+// Only the last step taken out of each cell is remembered, which erases the loops.
+// Every perfect maze is equally likely to be generated when there is no bias.
+class WilsonGenerator implements IMazeGenerator {
+
+  // EFFECT: knocks down walls of the given maze following Wilson's algorithm
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    SplittableRandom rand = new SplittableRandom(seed);
+    int cells = walls.cells();
+    long[] inTree = new long[(cells + 63) >>> 6];
+    int[] nextStep = new int[cells];
+    int[] neighbors = new int[4];
+
+    inTree[0] |= 1L;
+    for (int start = 1; start < cells; start += 1) {
+      int curr = start;
+      while ((inTree[curr >>> 6] & (1L << curr)) == 0) {
+        int count = walls.allNeighbors(curr, neighbors);
+        nextStep[curr] = walls.biasedChoice(curr, neighbors, count, bias, rand);
+        curr = nextStep[curr];
+      }
+
+      curr = start;
+      while ((inTree[curr >>> 6] & (1L << curr)) == 0) {
+        inTree[curr >>> 6] |= 1L << curr;
+        walls.openPassage(curr, nextStep[curr]);
+        curr = nextStep[curr];
+      }
+    }
+  }
+}
+
+// Generates braided mazes, which have loops: another generator carves a perfect maze,
+// then each wall it left standing between two cells is knocked down as well with the
+// given chance. The walls are drawn in id order from the seed, so the same seed always
+// braids the same walls.
+class BraidGenerator implements IMazeGenerator {
+  private final IMazeGenerator base;
+  private final double braid;
+
+  BraidGenerator(IMazeGenerator base, double braid) {
+    if (braid < 0 || braid > 1) {
+      throw new IllegalArgumentException("The braid is a chance between 0 and 1");
+    }
+    this.base = base;
+    this.braid = braid;
+  }
+
+  // EFFECT: knocks down the walls of a perfect maze, then some of the rest
+  public void generate(CompactMaze walls, Optional<Boolean> bias, long seed) {
+    this.base.generate(walls, bias, seed);
+    // a generator of its own, so the braid does not repeat the draws of the base
+    SplittableRandom rand = new SplittableRandom(seed).split();
+    for (int index = 0; index < walls.cells(); index += 1) {
+      if (walls.col(index) != walls.width() - 1 && !walls.openRight(index)
+          && rand.nextDouble() < this.braid) {
+        walls.openPassage(index, index + 1);
+      }
+      if (index + walls.width() < walls.cells() && !walls.openDown(index)
+          && rand.nextDouble() < this.braid) {
+        walls.openPassage(index, index + walls.width());
+      }
+    }
+  }
+
+  // determines the generator this braids the mazes of
+  IMazeGenerator base() {
+    return this.base;
+  }
+}
+
+// Represents a monotone priority queue of ids keyed by non-negative ints, where no key
+// pushed is ever less than the last key popped, as in Dijkstra's algorithm. Keys go into
+// buckets by the highest bit in which they differ from the last key popped, so each
+// entry moves down through at most 33 buckets over its life instead of being sifted
+// through a heap. Ids may be pushed more than once, and it is up to the caller to skip
+// the stale entries.
+class RadixHeap {
+  private final int[][] keys;
+  private final int[][] ids;
+  private final int[] counts;
+  private int last;
+  private int size;
+
+  RadixHeap() {
+    this.keys = new int[33][];
+    this.ids = new int[33][];
+    this.counts = new int[33];
+    for (int b = 0; b < 33; b += 1) {
+      this.keys[b] = new int[8];
+      this.ids[b] = new int[8];
+    }
+    this.last = 0;
+    this.size = 0;
+  }
+
+  // determines if this heap is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // determines how many entries are in this heap
+  int size() {
+    return this.size;
+  }
+
+  // determines the key of the entry popped last
+  int lastKey() {
+    return this.last;
+  }
+
+  // determines the bucket of the given key, 0 for keys equal to the last key popped
+  int bucketOf(int key) {
+    if (key == this.last) {
+      return 0;
+    }
+    return 32 - Integer.numberOfLeadingZeros(key ^ this.last);
+  }
+
+  // EFFECT: adds the given id with the given key, which must be at least the last key
+  // popped
+  void push(int key, int id) {
+    if (key < this.last) {
+      throw new IllegalArgumentException("Keys must not go below the last key popped");
+    }
+    this.add(this.bucketOf(key), key, id);
+    this.size += 1;
+  }
+
+  // EFFECT: adds the given entry to the given bucket
+  void add(int bucket, int key, int id) {
+    int count = this.counts[bucket];
+    if (count == this.keys[bucket].length) {
+      this.keys[bucket] = Arrays.copyOf(this.keys[bucket], 2 * count);
+      this.ids[bucket] = Arrays.copyOf(this.ids[bucket], 2 * count);
+    }
+    this.keys[bucket][count] = key;
+    this.ids[bucket][count] = id;
+    this.counts[bucket] = count + 1;
+  }
+
+  // EFFECT: removes an entry with the least key and returns its id, after which
+  // lastKey() is its key
+  int popMin() {
+    if (this.size == 0) {
+      throw new RuntimeException("heap is empty");
+    }
+    if (this.counts[0] == 0) {
+      int bucket = 1;
+      while (this.counts[bucket] == 0) {
+        bucket += 1;
+      }
+      // the least key of the first bucket in use becomes the last key, and every other
+      // entry of that bucket now differs from it in a lower bit
+      int count = this.counts[bucket];
+      int min = this.keys[bucket][0];
+      for (int i = 1; i < count; i += 1) {
+        min = Math.min(min, this.keys[bucket][i]);
+      }
+      this.last = min;
+      this.counts[bucket] = 0;
+      for (int i = 0; i < count; i += 1) {
+        int key = this.keys[bucket][i];
+        this.add(this.bucketOf(key), key, this.ids[bucket][i]);
+      }
+    }
+    this.counts[0] -= 1;
+    this.size -= 1;
+    return this.ids[0][this.counts[0]];
+  }
+}
+
+// Represents a binary min-heap of the ids [0, capacity), each with an int priority.
+// The position of every id in the heap is tracked, so its priority can be lowered in
+// place and nothing is boxed or allocated once the heap is made.
+class IntMinHeap {
+  private final int[] heap;
+  // the position of each id in the heap, or -1 when it is not in the heap
+  private final int[] position;
+  private final int[] priority;
+  private int size;
+
+  IntMinHeap(int capacity) {
+    this.heap = new int[capacity];
+    this.position = new int[capacity];
+    this.priority = new int[capacity];
+    Arrays.fill(this.position, -1);
+    this.size = 0;
+  }
+
+  // determines if this heap is empty
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  // determines how many ids are in this heap
+  int size() {
+    return this.size;
+  }
+
+  // is the given id in this heap?
+  boolean contains(int id) {
+    return this.position[id] >= 0;
+  }
+
+  // determines the priority the given id was last given
+  int priority(int id) {
+    return this.priority[id];
+  }
+
+  // determines the priority of the id at the top of this heap
+  int minPriority() {
+    if (this.size == 0) {
+      throw new RuntimeException("heap is empty");
+    }
+    return this.priority[this.heap[0]];
+  }
+
+  // EFFECT: adds the given id with the given priority, or lowers its priority if it is
+  // already in this heap. Returns false if it was already in the heap with a priority
+  // no higher than the given one.
+  boolean insertOrDecrease(int id, int newPriority) {
+    if (this.contains(id)) {
+      if (newPriority >= this.priority[id]) {
+        return false;
+      }
+      this.priority[id] = newPriority;
+      this.siftUp(this.position[id]);
+      return true;
+    }
+
+    this.priority[id] = newPriority;
+    this.heap[this.size] = id;
+    this.position[id] = this.size;
+    this.size += 1;
+    this.siftUp(this.size - 1);
+    return true;
+  }
+
+  // EFFECT: removes and retrieves the id with the lowest priority in this heap, where
+  // ties go to whichever reached the top first
+  int popMin() {
+    if (this.size == 0) {
+      throw new RuntimeException("heap is empty");
+    }
+    int min = this.heap[0];
+    this.size -= 1;
+    this.position[min] = -1;
+    if (this.size > 0) {
+      this.heap[0] = this.heap[this.size];
+      this.position[this.heap[0]] = 0;
+      this.siftDown(0);
+    }
+    return min;
+  }
+
+  // EFFECT: removes every id from this heap
+  void clear() {
+    for (int i = 0; i < this.size; i += 1) {
+      this.position[this.heap[i]] = -1;
+    }
+    this.size = 0;
+  }
+
+  // EFFECT: moves the id at the given position up until its parent is no larger
+  void siftUp(int pos) {
+    int id = this.heap[pos];
+    while (pos > 0) {
+      int parentPos = (pos - 1) >>> 1;
+      int parent = this.heap[parentPos];
+      if (this.priority[parent] <= this.priority[id]) {
+        break;
+      }
+      this.heap[pos] = parent;
+      this.position[parent] = pos;
+      pos = parentPos;
+    }
+    this.heap[pos] = id;
+    this.position[id] = pos;
+  }
+
+  // EFFECT: moves the id at the given position down until neither child is smaller
+  void siftDown(int pos) {
+    int id = this.heap[pos];
+    while (true) {
+      int childPos = 2 * pos + 1;
+      if (childPos >= this.size) {
+        break;
+      }
+      if (childPos + 1 < this.size
+          && this.priority[this.heap[childPos + 1]] < this.priority[this.heap[childPos]]) {
+        childPos += 1;
+      }
+      int child = this.heap[childPos];
+      if (this.priority[child] >= this.priority[id]) {
+        break;
+      }
+      this.heap[pos] = child;
+      this.position[child] = pos;
+      pos = childPos;
+    }
+    this.heap[pos] = id;
+    this.position[id] = pos;
+  }
+}
+
+// Receives the walls of a maze one row at a time, from the top row down
+interface IRowConsumer {
+
+  // EFFECT: takes in the given row, where bit x of openRight is set when cell x of the
+  // row is linked to the cell to its right, and bit x of openDown is set when it is linked
+  // to the cell below it. The arrays are reused for the next row, so must be copied
+  // if they are kept.
+  void acceptRow(int rowIdx, long[] openRight, long[] openDown);
+}
+
+// Generates a perfect maze one row at a time following Eller's algorithm. Only the set
+// that each cell of the current row belongs to is kept, so the memory used grows with
+// the width of the maze but not with its height.
+class EllerGenerator {
+  private final int width;
+  // the chance that two neighboring cells in different sets are joined
+  private final double joinChance;
+  // the chance that a cell is linked to the cell below it, when its set does not
+  // depend on it to reach the next row
+  private final double downChance;
+  private final SplittableRandom rand;
+  // the set of every cell in the current row, which is always less than 2 * width
+  private final int[] sets;
+  // a union-find over the sets of the current row, used while joining neighbors
+  private final int[] setParent;
+  // how many cells of each set of the current row have not yet been visited
+  private final int[] setRemaining;
+  // has any cell of each set of the current row been linked to the row below?
+  private final boolean[] setWentDown;
+  private final long[] openRight;
+  private final long[] openDown;
+
+  // Constructor where a horizontal bias (true) favors joining neighbors in a row and a
+  // vertical bias (false) favors linking rows
+  EllerGenerator(int width, Optional<Boolean> bias, long seed) {
+    if (width <= 0) {
+      throw new IllegalArgumentException("Dimensions must be positive");
+    }
+    this.width = width;
+    double joinChance = 0.5;
+    if (bias.isPresent()) {
+      if (bias.get()) {
+        joinChance = 0.8;
+      }
+      else {
+        joinChance = 0.2;
+      }
+    }
+    this.joinChance = joinChance;
+    this.downChance = 1 - joinChance;
+    this.rand = new SplittableRandom(seed);
+    this.sets = new int[width];
+    this.setParent = new int[2 * width];
+    this.setRemaining = new int[2 * width];
+    this.setWentDown = new boolean[2 * width];
+    this.openRight = new long[(width + 63) >>> 6];
+    this.openDown = new long[(width + 63) >>> 6];
+  }
+
+  // EFFECT: generates the given number of rows, handing each one to the given consumer
+  // as soon as it is finished
+  void generate(int height, IRowConsumer rows) {
+    if (height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be positive");
+    }
+    // every cell of the first row starts in its own set
+    for (int x = 0; x < this.width; x += 1) {
+      this.sets[x] = x;
+    }
+
+    for (int rowIdx = 0; rowIdx < height; rowIdx += 1) {
+      boolean lastRow = rowIdx == height - 1;
+      Arrays.fill(this.openRight, 0);
+      Arrays.fill(this.openDown, 0);
+      for (int set = 0; set < 2 * this.width; set += 1) {
+        this.setParent[set] = set;
+      }
+
+      this.joinNeighbors(lastRow);
+      if (!lastRow) {
+        this.linkDown();
+      }
+      rows.acceptRow(rowIdx, this.openRight, this.openDown);
+      if (!lastRow) {
+        this.startNextRow();
+      }
+    }
+  }
+
+  // EFFECT: joins neighboring cells of the current row which are in different sets,
+  // either at random or, in the last row, always
+  void joinNeighbors(boolean lastRow) {
+    for (int x = 0; x < this.width - 1; x += 1) {
+      int left = this.findSet(this.sets[x]);
+      int right = this.findSet(this.sets[x + 1]);
+      if (left != right && (lastRow || this.rand.nextDouble() < this.joinChance)) {
+        this.setParent[right] = left;
+        this.openRight[x >>> 6] |= 1L << x;
+      }
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      this.sets[x] = this.findSet(this.sets[x]);
+    }
+  }
+
+  // EFFECT: links cells of the current row to the row below at random, making sure
+  // that every set is linked at least once so that no set is cut off
+  void linkDown() {
+    for (int x = 0; x < this.width; x += 1) {
+      this.setRemaining[this.sets[x]] = 0;
+      this.setWentDown[this.sets[x]] = false;
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      this.setRemaining[this.sets[x]] += 1;
+    }
+
+    for (int x = 0; x < this.width; x += 1) {
+      int set = this.sets[x];
+      this.setRemaining[set] -= 1;
+      boolean lastChance = this.setRemaining[set] == 0 && !this.setWentDown[set];
+      if (lastChance || this.rand.nextDouble() < this.downChance) {
+        this.setWentDown[set] = true;
+        this.openDown[x >>> 6] |= 1L << x;
+      }
+    }
+  }
+
+  // EFFECT: moves on to the next row, where cells linked from above keep their set and
+  // every other cell starts in a new set. Sets are renumbered by their first cell, so
+  // they stay below 2 * width.
+  void startNextRow() {
+    for (int x = 0; x < this.width; x += 1) {
+      if ((this.openDown[x >>> 6] & (1L << x)) == 0) {
+        this.sets[x] = this.width + x;
+      }
+    }
+
+    // setParent is reused to map each old set to its new number
+    Arrays.fill(this.setParent, -1);
+    for (int x = 0; x < this.width; x += 1) {
+      int set = this.sets[x];
+      if (this.setParent[set] < 0) {
+        this.setParent[set] = x;
+      }
+      this.sets[x] = this.setParent[set];
+    }
+  }
+
+  // Determines the set that the given set has been joined into in the current row
+  int findSet(int set) {
+    int master = set;
+    while (this.setParent[master] != master) {
+      master = this.setParent[master];
+    }
+    while (set != master) {
+      int next = this.setParent[set];
+      this.setParent[set] = master;
+      set = next;
+    }
+    return master;
+  }
+}
+
+// Represents anything a player can move through one cell at a time, however its walls
+// are stored
+interface IMazeView {
+
+  // Can the player move to the target position, with respect to its current position?
+  boolean playerCanMove(Posn currPos, Posn targPos);
+}
+
+// Solves a maze with Pledge's algorithm, then by keeping its right hand on the wall.
+// It heads down whenever it can; when a wall is in the way it turns left and follows
+// that wall with its right hand, adding up its turns (right is +1, left is -1), and it
+// only lets go once they add up to 0 again, facing down. That way it can't be caught
+// going around a loop of the maze, and it always gets to the bottom row. From there
+// it puts its right hand on the bottom wall and follows it, which passes every cell on
+// the bottom row, so it gets to a goal on the bottom row like the exit, wherever it
+// started and even when the maze has loops. All it remembers is where it is, which
+// way it faces and its turns, so its memory does not grow with the maze, and it only
+// ever asks the maze whether a move can be made. The moves come out one at a time as
+// the keys that would make them ("w", "a", "s" or "d"). A maze with no bottom row,
+// like a ChunkedMaze, may never be solved.
+class WallFollower implements Iterator<String> {
+  // the keys and steps of the headings up, right, down and left, in clockwise order
+  static final String[] KEYS = {"w", "d", "s", "a"};
+  static final int[] DX = {0, 1, 0, -1};
+  static final int[] DY = {-1, 0, 1, 0};
+  static final int DOWN = 2;
+  private final IMazeView maze;
+  private final Posn goal;
+  private int x;
+  private int y;
+  private int heading;
+  // how many quarter turns it has made since it took hold of the wall, right being +1
+  private int turns;
+  // is its hand on a wall, rather than heading down?
+  private boolean following;
+  // has it taken hold of the bottom wall, never to let go?
+  private boolean onBottom;
+
+  // a follower from the given start to the given goal, which is on the bottom row of
+  // the maze
+  WallFollower(IMazeView maze, Posn start, Posn goal) {
+    this.maze = maze;
+    this.goal = goal;
+    this.x = start.x;
+    this.y = start.y;
+    this.heading = DOWN;
+    this.onBottomRow();
+  }
+
+  // has the goal not been reached yet?
+  public boolean hasNext() {
+    return this.x != this.goal.x || this.y != this.goal.y;
+  }
+
+  // EFFECT: makes the next move and returns its key
+  public String next() {
+    if (!this.following) {
+      if (this.tryMove(0)) {
+        return this.moved();
+      }
+      // a wall is in front, so it takes hold of it with its right hand by turning left
+      this.following = true;
+      for (int turn = -1; turn >= -3; turn -= 1) {
+        if (this.tryMove(turn)) {
+          return this.moved();
+        }
+      }
+    }
+    else {
+      // turn right, go straight, turn left, then turn back
+      for (int turn = 1; turn >= -2; turn -= 1) {
+        if (this.tryMove(turn)) {
+          return this.moved();
+        }
+      }
+    }
+    throw new RuntimeException("no path exists");
+  }
+
+  // EFFECT: makes the move the given number of quarter turns right of the heading, if
+  // it can be made. Returns whether it was.
+  boolean tryMove(int turn) {
+    int h = (this.heading + turn + 4) % 4;
+    Posn target = new Posn(this.x + DX[h], this.y + DY[h]);
+    if (!this.maze.playerCanMove(new Posn(this.x, this.y), target)) {
+      return false;
+    }
+    this.x = target.x;
+    this.y = target.y;
+    this.heading = h;
+    if (!this.onBottom) {
+      this.turns += turn;
+    }
+    return true;
+  }
+
+  // EFFECT: lets go of the wall if the turns add up to 0, or takes hold of the bottom
+  // wall if it has reached the bottom row. Returns the key of the move just made.
+  String moved() {
+    String key = KEYS[this.heading];
+    if (this.following && !this.onBottom && this.turns == 0) {
+      this.following = false;
+    }
+    this.onBottomRow();
+    return key;
+  }
+
+  // EFFECT: puts its right hand on the bottom wall, facing right, the first time it is
+  // on the bottom row. From then on it never lets go.
+  void onBottomRow() {
+    if (!this.onBottom && this.y == this.goal.y) {
+      this.heading = 1;
+      this.following = true;
+      this.onBottom = true;
+    }
+  }
+
+  // determines where the follower is now
+  Posn position() {
+    return new Posn(this.x, this.y);
+  }
+}
+
+// Represents the walls of a Maze packed into two bits per cell, with no Cell, Node or
+// Edge objects. Cells are addressed by their row-major index (y * width + x). Each cell
+// records only whether it is linked to the cell on its right and to the cell below it,
+// since the links to its left and above are recorded by those neighbors.
+class CompactMaze implements IRowConsumer, IMazeView {
+  // the colors a cell can be painted, each cell stores its index into this palette
+  static final Color[] PALETTE = {
+      Color.LIGHT_GRAY, Color.green, Color.red, Color.cyan, Color.BLUE };
+  private final int width;
+  private final int height;
+  // bit i is set when cell i is linked to the cell to its right
+  private final long[] openRight;
+  // bit i is set when cell i is linked to the cell below it
+  private final long[] openDown;
+  // the palette index of every cell. This is not final because it is only
+  // allocated the first time a cell is colored, so that mazes which are only
+  // generated and searched stay at two bits per cell.
+  private byte[] colors;
+
+  // Constructor for a maze of the given dimensions where every wall is still standing
+  CompactMaze(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Dimensions must be positive");
+    }
+    if ((long) width * height > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Maze has too many cells to index");
+    }
+    this.width = width;
+    this.height = height;
+    int words = (width * height + 63) >>> 6;
+    this.openRight = new long[words];
+    this.openDown = new long[words];
+  }
+
+  // Constructor which packs the links of the given grid of Cells
+  CompactMaze(ArrayList<ArrayList<Cell>> grid) {
+    this(grid.get(0).size(), grid.size());
+    for (int y = 0; y < height; y += 1) {
+      for (int x = 0; x < width; x += 1) {
+        Cell curr = grid.get(y).get(x);
+        if (x != width - 1 && curr.isLinkedTo(grid.get(y).get(x + 1)).isPresent()) {
+          this.openPassage(this.index(x, y), this.index(x + 1, y));
+        }
+        if (y != height - 1 && curr.isLinkedTo(grid.get(y + 1).get(x)).isPresent()) {
+          this.openPassage(this.index(x, y), this.index(x, y + 1));
+        }
+      }
+    }
+  }
+
+  // EFFECT: Knocks down walls of this maze following Kruskal's algorithm over the given
+  // weights, so that every cell is linked to every other cell by exactly one path
+  void kruskals(EdgeWeights weights) {
+    Utils u = new Utils();
+    long[] keys = new long[2 * this.cells()];
+    int edgeCount = 0;
+    for (int index = 0; index < this.cells(); index += 1) {
+      if (this.col(index) != this.width - 1) {
+        keys[edgeCount] = u.packEdgeKey(weights.weight(2 * index), 2 * index);
+        edgeCount += 1;
+      }
+      if (this.row(index) != this.height - 1) {
+        keys[edgeCount] = u.packEdgeKey(weights.weight(2 * index + 1), 2 * index + 1);
+        edgeCount += 1;
+      }
+    }
+    keys = Arrays.copyOf(keys, edgeCount);
+    u.radixsort(keys, new long[edgeCount], 32);
+
+    IntUnionFind blobs = new IntUnionFind(this.cells());
+    for (int cursor = 0; cursor < edgeCount && blobs.components() > 1; cursor += 1) {
+      int edgeId = u.keyId(keys[cursor]);
+      int from = edgeId >>> 1;
+      int to = from + 1;
+      if ((edgeId & 1) == 1) {
+        to = from + this.width;
+      }
+      if (blobs.union(from, to)) {
+        this.openPassage(from, to);
+      }
+    }
+  }
+
+  // determines the number of cells in a row of this maze
+  int width() {
+    return this.width;
+  }
+
+  // determines the number of rows in this maze
+  int height() {
+    return this.height;
+  }
+
+  // determines the number of cells in this maze
+  int cells() {
+    return this.width * this.height;
+  }
+
+  // determines the bitset of passages to the right of each cell, which is shared rather
+  // than copied and so must only be read
+  long[] rightWords() {
+    return this.openRight;
+  }
+
+  // determines the bitset of passages below each cell, which is shared rather than
+  // copied and so must only be read
+  long[] downWords() {
+    return this.openDown;
+  }
+
+  // determines the index of the cell at the given column and row
+  int index(int x, int y) {
+    return y * this.width + x;
+  }
+
+  // determines the index of the cell at the given position
+  int index(Posn p) {
+    return this.index(p.x, p.y);
+  }
+
+  // determines the column of the cell with the given index
+  int col(int index) {
+    return index % this.width;
+  }
+
+  // determines the row of the cell with the given index
+  int row(int index) {
+    return index / this.width;
+  }
+
+  // is the cell with the given index linked to the cell to its right?
+  boolean openRight(int index) {
+    return (this.openRight[index >>> 6] & (1L << index)) != 0;
+  }
+
+  // is the cell with the given index linked to the cell below it?
+  boolean openDown(int index) {
+    return (this.openDown[index >>> 6] & (1L << index)) != 0;
+  }
+
+  // is the cell with the given index linked to the cell to its left?
+  boolean openLeft(int index) {
+    return index % this.width != 0 && this.openRight(index - 1);
+  }
+
+  // is the cell with the given index linked to the cell above it?
+  boolean openUp(int index) {
+    return index >= this.width && this.openDown(index - this.width);
+  }
+
+  // EFFECT: knocks down the wall between the two given cells, which must be neighbors
+  void openPassage(int a, int b) {
+    int first = Math.min(a, b);
+    int second = Math.max(a, b);
+    if (second == first + 1 && second % this.width != 0) {
+      this.openRight[first >>> 6] |= 1L << first;
+    }
+    else if (second == first + this.width) {
+      this.openDown[first >>> 6] |= 1L << first;
+    }
+    else {
+      throw new IllegalArgumentException("cells " + a + " and " + b + " are not neighbors");
+    }
+  }
+
+  // EFFECT: knocks down the walls of the given row of this maze that are open in the
+  // given row bits
+  public void acceptRow(int rowIdx, long[] openRight, long[] openDown) {
+    for (int x = 0; x < this.width; x += 1) {
+      int index = this.index(x, rowIdx);
+      if ((openRight[x >>> 6] & (1L << x)) != 0) {
+        this.openRight[index >>> 6] |= 1L << index;
+      }
+      if ((openDown[x >>> 6] & (1L << x)) != 0) {
+        this.openDown[index >>> 6] |= 1L << index;
+      }
+    }
+  }
+
+  // does the given maze have exactly the same dimensions and passages as this one?
+  boolean sameWalls(CompactMaze that) {
+    return this.width == that.width
+        && this.height == that.height
+        && Arrays.equals(this.openRight, that.openRight)
+        && Arrays.equals(this.openDown, that.openDown);
+  }
+
+  // are the two given cells neighbors with no wall between them?
+  boolean linked(int a, int b) {
+    int first = Math.min(a, b);
+    int second = Math.max(a, b);
+    // in a maze one cell wide, the cell below is also the next one
+    if (second == first + this.width) {
+      return this.openDown(first);
+    }
+    return second == first + 1 && second % this.width != 0 && this.openRight(first);
+  }
+
+  // is every cell of this maze linked to every other cell by exactly one path?
+  boolean isPerfect() {
+    IntUnionFind reached = new IntUnionFind(this.cells());
+    for (int index = 0; index < this.cells(); index += 1) {
+      if (this.openRight(index) && !reached.union(index, index + 1)) {
+        return false;
+      }
+      if (this.openDown(index) && !reached.union(index, index + this.width)) {
+        return false;
+      }
+    }
+    return reached.components() == 1;
+  }
+
+  // determines the number of walls that have been knocked down in this maze
+  int passages() {
+    int count = 0;
+    for (int i = 0; i < this.openRight.length; i += 1) {
+      count += Long.bitCount(this.openRight[i]) + Long.bitCount(this.openDown[i]);
+    }
+    return count;
+  }
+
+  // EFFECT: fills the given array with the cells linked to the given cell, in the order
+  // left, right, up, down. Returns how many were found (the array needs room for 4).
+  int connectingCells(int index, int[] out) {
+    int count = 0;
+    if (this.openLeft(index)) {
+      out[count] = index - 1;
+      count += 1;
+    }
+    if (this.openRight(index)) {
+      out[count] = index + 1;
+      count += 1;
+    }
+    if (this.openUp(index)) {
+      out[count] = index - this.width;
+      count += 1;
+    }
+    if (this.openDown(index)) {
+      out[count] = index + this.width;
+      count += 1;
+    }
+    return count;
+  }
+
+  // EFFECT: fills the given array with every neighbor of the given cell, whether or not
+  // there is a wall between them, in the order left, right, up, down. Returns how many
+  // there are (the array needs room for 4).
+  int allNeighbors(int index, int[] out) {
+    int count = 0;
+    if (this.col(index) != 0) {
+      out[count] = index - 1;
+      count += 1;
+    }
+    if (this.col(index) != this.width - 1) {
+      out[count] = index + 1;
+      count += 1;
+    }
+    if (index >= this.width) {
+      out[count] = index - this.width;
+      count += 1;
+    }
+    if (index < this.cells() - this.width) {
+      out[count] = index + this.width;
+      count += 1;
+    }
+    return count;
+  }
+
+  // determines the distance of every cell from the nearest of the given cells, in one
+  // breadth-first pass that starts from all of them at once. Cells none of them can
+  // reach are at distance -1.
+  int[] distancesFrom(int[] sources) {
+    int[] dist = new int[this.cells()];
+    Arrays.fill(dist, -1);
+    int[] queue = new int[this.cells()];
+    int[] neighbors = new int[4];
+    int tail = 0;
+    for (int source : sources) {
+      if (dist[source] < 0) {
+        dist[source] = 0;
+        queue[tail] = source;
+        tail += 1;
+      }
+    }
+
+    for (int head = 0; head < tail; head += 1) {
+      int next = queue[head];
+      int count = this.connectingCells(next, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = neighbors[i];
+        if (dist[c] < 0) {
+          dist[c] = dist[next] + 1;
+          queue[tail] = c;
+          tail += 1;
+        }
+      }
+    }
+    return dist;
+  }
+
+  // determines the id of the wall between the two given neighboring cells, where wall
+  // 2i is to the right of cell i and wall 2i + 1 is below it
+  int wallBetween(int a, int b) {
+    int first = Math.min(a, b);
+    if (Math.max(a, b) == first + this.width) {
+      return 2 * first + 1;
+    }
+    return 2 * first;
+  }
+
+  // Chooses one of the first count given neighbors of the given cell at random, where a
+  // horizontal bias (true) makes neighbors in the same row five times as likely and a
+  // vertical bias (false) makes neighbors in the same column five times as likely
+  int biasedChoice(int index, int[] options, int count, Optional<Boolean> bias,
+      SplittableRandom rand) {
+    if (bias.isEmpty()) {
+      return options[rand.nextInt(count)];
+    }
+
+    int total = 0;
+    for (int i = 0; i < count; i += 1) {
+      total += this.choiceWeight(index, options[i], bias.get());
+    }
+    int pick = rand.nextInt(total);
+    for (int i = 0; i < count; i += 1) {
+      pick -= this.choiceWeight(index, options[i], bias.get());
+      if (pick < 0) {
+        return options[i];
+      }
+    }
+    return options[count - 1];
+  }
+
+  // determines how heavily a step from the given cell to the given neighbor counts for
+  // biasedChoice under the given bias
+  int choiceWeight(int index, int neighbor, boolean horizontal) {
+    boolean sameRow = Math.abs(index - neighbor) == 1;
+    if (sameRow == horizontal) {
+      return 5;
+    }
+    return 1;
+  }
+
+  // Can the player move to the target position in this maze, with respect to its
+  // current position?
+  public boolean playerCanMove(Posn currPos, Posn targPos) {
+    if (targPos.x < 0
+        || targPos.y < 0
+        || targPos.x >= this.width
+        || targPos.y >= this.height) {
+      return false;
+    }
+    return this.linked(this.index(currPos), this.index(targPos));
+  }
+
+  // Has the player completed the maze?
+  boolean finishedMaze(Posn playerPos) {
+    return playerPos.x == this.width - 1 && playerPos.y == this.height - 1;
+  }
+
+  // determines how many bytes the arrays of this maze take up
+  long bytesUsed() {
+    long bytes = 8L * (this.openRight.length + this.openDown.length);
+    if (this.colors != null) {
+      bytes += this.colors.length;
+    }
+    return bytes;
+  }
+
+  // determines the nominal number of bits this maze uses per cell: the payload of its
+  // arrays by their lengths, leaving out the array headers and this object, which the
+  // JVM does not let us measure from here
+  double nominalBitsPerCell() {
+    return 8.0 * this.bytesUsed() / this.cells();
+  }
+
+  // <---------------------------- Colors & Rendering ---------------------------->
+
+  // determines the color of the cell with the given index
+  Color colorOf(int index) {
+    if (this.colors == null) {
+      return PALETTE[0];
+    }
+    return PALETTE[this.colors[index]];
+  }
+
+  // EFFECT: Colors the cell at the given position, unless it is the start (green) or the
+  // exit (red) of this maze, in which case it keeps its color like a Node would
+  void colorCell(Posn pos, Color color) {
+    int index = this.index(pos);
+    if (index == 0 || index == this.cells() - 1) {
+      return;
+    }
+    this.paint(index, color);
+  }
+
+  // EFFECT: Colors the cell with the given index, which must be a color of the palette
+  void paint(int index, Color color) {
+    int paletteIdx = Arrays.asList(PALETTE).indexOf(color);
+    if (paletteIdx < 0) {
+      throw new IllegalArgumentException("can not color a cell " + color);
+    }
+    if (this.colors == null) {
+      if (paletteIdx == 0) {
+        return;
+      }
+      this.colors = new byte[this.cells()];
+    }
+    this.colors[index] = (byte) paletteIdx;
+  }
+  // determines every cell of this maze painted another color than the first of the
+  // palette, each packed with its palette index as (index << 8) | paletteIndex
+  int[] painted() {
+    if (this.colors == null) {
+      return new int[0];
+    }
+    int count = 0;
+    for (int index = 0; index < this.colors.length; index += 1) {
+      if (this.colors[index] != 0) {
+        count += 1;
+      }
+    }
+    int[] painted = new int[count];
+    count = 0;
+    for (int index = 0; index < this.colors.length; index += 1) {
+      if (this.colors[index] != 0) {
+        painted[count] = (index << 8) | this.colors[index];
+        count += 1;
+      }
+    }
+    return painted;
+  }
+
+  // EFFECT: paints the cells packed in the given array, as painted gives them
+  void repaint(int[] painted) {
+    for (int cell : painted) {
+      this.paint(cell >>> 8, PALETTE[cell & 0xFF]);
+    }
+  }
+
+
+  // EFFECT: resets every cell of this maze back to the default color
+  void resetGridColors() {
+    this.colors = null;
+  }
+
+  // renders this maze, where the start is green and the exit is red
+  ComputedPixelImage renderMaze(int scale) {
+    ComputedPixelImage cpi = new ComputedPixelImage(width * scale, height * scale);
+    for (int index = 0; index < this.cells(); index += 1) {
+      Color color = this.colorOf(index);
+      if (index == 0) {
+        color = Color.green;
+      }
+      else if (index == this.cells() - 1) {
+        color = Color.red;
+      }
+      this.renderCell(cpi, index, scale, color);
+      this.renderWalls(cpi, index, scale);
+    }
+    return cpi;
+  }
+
+  // EFFECT: Renders the square of the cell with the given index in the given color
+  void renderCell(ComputedPixelImage cpi, int index, int scale, Color color) {
+    int startX = this.col(index) * scale;
+    int startY = this.row(index) * scale;
+    for (int k = startX; k < startX + scale; k += 1) {
+      for (int i = startY; i < startY + scale; i += 1) {
+        cpi.setColorAt(k, i, color);
+      }
+    }
+  }
+
+  // EFFECT: Renders every wall that is still standing around the cell with the given
+  // index, adding an extra "layer" to each wall if the cell size is large enough
+  void renderWalls(ComputedPixelImage cpi, int index, int scale) {
+    new Utils().drawWalls(cpi, this.col(index) * scale, this.row(index) * scale, scale,
+        this.openUp(index), this.openDown(index), this.openLeft(index), this.openRight(index));
+  }
+}
+
+// Represents a maze without bounds in any direction, split into square chunks which are
+// each a perfect maze of their own. A chunk is generated from the seed and its chunk
+// coordinates the first time any of its cells is touched, so the same chunk always comes
+// back with the same walls. Every pair of side-by-side chunks share exactly one door,
+// placed by a hash of the seed and the coordinates of the chunk left of or above it, so
+// either side finds the same door without the other being loaded, and every cell can
+// reach every other. Loaded chunks are kept in a least recently used cache of bounded
+// size. Evicting a chunk sets its painted cells aside in a second least recently used
+// cache, of TRAILS_PER_CHUNK times as many chunks, and they are painted back if the
+// chunk is loaded again. Once that cache is full the oldest trail is forgotten, so the
+// memory used stays bounded however far the player goes.
+class ChunkedMaze implements IMazeView {
+  // how many evicted chunks keep their trails for each chunk the cache holds
+  static final int TRAILS_PER_CHUNK = 4;
+  private final int chunkSize;
+  private final int capacity;
+  private final Optional<Boolean> bias;
+  private final long seed;
+  // loaded chunks keyed by packed chunk coordinates, least recently used first
+  private final LinkedHashMap<Long, CompactMaze> chunks;
+  // the painted cells of evicted chunks, as CompactMaze.painted gives them, so that a
+  // trail is still there when its chunk is generated again, least recently evicted
+  // first. Only chunks with painted cells are kept, at 4 bytes a cell, and at most
+  // TRAILS_PER_CHUNK * capacity of them.
+  private final LinkedHashMap<Long, int[]> trails;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  ChunkedMaze(int chunkSize, int capacity, Optional<Boolean> bias, long seed) {
+    if (chunkSize < 2 || capacity < 1) {
+      throw new IllegalArgumentException("Chunks must be at least 2 cells wide, and at "
+          + "least one must fit in the cache");
+    }
+    this.chunkSize = chunkSize;
+    this.capacity = capacity;
+    this.bias = bias;
+    this.seed = seed;
+    this.chunks = new LinkedHashMap<>(2 * capacity, 0.75f, true);
+    this.trails = new LinkedHashMap<>();
+  }
+
+  // determines the coordinate of the chunk holding the given cell coordinate
+  int chunkOf(int coord) {
+    return Math.floorDiv(coord, this.chunkSize);
+  }
+
+  // determines the coordinate within its chunk of the given cell coordinate
+  int local(int coord) {
+    return Math.floorMod(coord, this.chunkSize);
+  }
+
+  // mixes the seed of this maze with the given chunk coordinates and salt into the seed
+  // of a generator, so that neighboring chunks draw unrelated numbers
+  long chunkSeed(int chunkX, int chunkY, int salt) {
+    long mixed = this.seed + chunkX * 0x9E3779B97F4A7C15L + chunkY * 0xC2B2AE3D27D4EB4FL
+        + salt * 0x165667B19E3779F9L;
+    return new SplittableRandom(mixed).nextLong();
+  }
+
+  // determines the row of the door in the right side of the given chunk
+  int rightDoor(int chunkX, int chunkY) {
+    return new SplittableRandom(this.chunkSeed(chunkX, chunkY, 1)).nextInt(this.chunkSize);
+  }
+
+  // determines the column of the door in the bottom side of the given chunk
+  int bottomDoor(int chunkX, int chunkY) {
+    return new SplittableRandom(this.chunkSeed(chunkX, chunkY, 2)).nextInt(this.chunkSize);
+  }
+
+  // Returns the chunk with the given coordinates, generating it if it is not loaded and
+  // evicting the least recently used chunk if the cache is then over capacity. The
+  // colors of an evicted chunk are set aside, and painted back when it is generated.
+  CompactMaze chunk(int chunkX, int chunkY) {
+    Long key = ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    CompactMaze chunk = this.chunks.get(key);
+    if (chunk != null) {
+      this.hits += 1;
+      return chunk;
+    }
+
+    this.misses += 1;
+    chunk = new CompactMaze(this.chunkSize, this.chunkSize);
+    chunk.kruskals(new EdgeWeights(this.chunkSize, this.chunkSize, this.bias,
+        this.chunkSeed(chunkX, chunkY, 0)));
+    int[] trail = this.trails.remove(key);
+    if (trail != null) {
+      chunk.repaint(trail);
+    }
+    this.chunks.put(key, chunk);
+    if (this.chunks.size() > this.capacity) {
+      Iterator<Map.Entry<Long, CompactMaze>> eldest = this.chunks.entrySet().iterator();
+      Map.Entry<Long, CompactMaze> evicted = eldest.next();
+      int[] painted = evicted.getValue().painted();
+      if (painted.length > 0) {
+        this.trails.put(evicted.getKey(), painted);
+        if (this.trails.size() > TRAILS_PER_CHUNK * this.capacity) {
+          Iterator<Long> oldest = this.trails.keySet().iterator();
+          oldest.next();
+          oldest.remove();
+        }
+      }
+      eldest.remove();
+      this.evictions += 1;
+    }
+    return chunk;
+  }
+
+  // Returns the chunk holding the cell at the given position
+  CompactMaze chunkAt(Posn pos) {
+    return this.chunk(this.chunkOf(pos.x), this.chunkOf(pos.y));
+  }
+
+  // determines the index within its chunk of the cell at the given position
+  int localIndex(Posn pos) {
+    return this.local(pos.y) * this.chunkSize + this.local(pos.x);
+  }
+
+  // is there a passage between the cell at (x, y) and the cell to its right?
+  boolean openRight(int x, int y) {
+    int chunkX = this.chunkOf(x);
+    int chunkY = this.chunkOf(y);
+    if (this.local(x) == this.chunkSize - 1) {
+      return this.local(y) == this.rightDoor(chunkX, chunkY);
+    }
+    return this.chunk(chunkX, chunkY).openRight(this.localIndex(new Posn(x, y)));
+  }
+
+  // is there a passage between the cell at (x, y) and the cell below it?
+  boolean openDown(int x, int y) {
+    int chunkX = this.chunkOf(x);
+    int chunkY = this.chunkOf(y);
+    if (this.local(y) == this.chunkSize - 1) {
+      return this.local(x) == this.bottomDoor(chunkX, chunkY);
+    }
+    return this.chunk(chunkX, chunkY).openDown(this.localIndex(new Posn(x, y)));
+  }
+
+  // Can the player move to the target position in this maze, with respect to its
+  // current position?
+  public boolean playerCanMove(Posn currPos, Posn targPos) {
+    int dx = targPos.x - currPos.x;
+    int dy = targPos.y - currPos.y;
+    if (dy == 0 && dx == 1) {
+      return this.openRight(currPos.x, currPos.y);
+    }
+    if (dy == 0 && dx == -1) {
+      return this.openRight(targPos.x, targPos.y);
+    }
+    if (dx == 0 && dy == 1) {
+      return this.openDown(currPos.x, currPos.y);
+    }
+    if (dx == 0 && dy == -1) {
+      return this.openDown(targPos.x, targPos.y);
+    }
+    return false;
+  }
+
+  // determines the color of the cell at the given position
+  Color colorOf(Posn pos) {
+    if (pos.x == 0 && pos.y == 0) {
+      return Color.green;
+    }
+    return this.chunkAt(pos).colorOf(this.localIndex(pos));
+  }
+
+  // EFFECT: Colors the cell at the given position, unless it is the start at the origin,
+  // which stays green
+  void colorCell(Posn pos, Color color) {
+    if (pos.x == 0 && pos.y == 0) {
+      return;
+    }
+    this.chunkAt(pos).paint(this.localIndex(pos), color);
+  }
+
+  // renders the given number of columns and rows of this maze, starting at the cell at
+  // the given position in the top left
+  ComputedPixelImage renderWindow(Posn topLeft, int cols, int rows, int scale) {
+    ComputedPixelImage cpi = new ComputedPixelImage(cols * scale, rows * scale);
+    Utils u = new Utils();
+    for (int row = 0; row < rows; row += 1) {
+      for (int col = 0; col < cols; col += 1) {
+        int x = topLeft.x + col;
+        int y = topLeft.y + row;
+        Color color = this.colorOf(new Posn(x, y));
+        for (int k = col * scale; k < (col + 1) * scale; k += 1) {
+          for (int i = row * scale; i < (row + 1) * scale; i += 1) {
+            cpi.setColorAt(k, i, color);
+          }
+        }
+        u.drawWalls(cpi, col * scale, row * scale, scale, this.openDown(x, y - 1),
+            this.openDown(x, y), this.openRight(x - 1, y), this.openRight(x, y));
+      }
+    }
+    return cpi;
+  }
+
+  // determines how many chunks are loaded
+  int loadedChunks() {
+    return this.chunks.size();
+  }
+
+  // determines how many chunk lookups found the chunk already loaded
+  long hits() {
+    return this.hits;
+  }
+
+  // determines how many chunk lookups had to generate the chunk
+  long misses() {
+    return this.misses;
+  }
+
+  // determines how many chunks have been evicted to keep within capacity
+  long evictions() {
+    return this.evictions;
+  }
+
+  // determines how many evicted chunks have their colors set aside
+  int trailChunks() {
+    return this.trails.size();
+  }
+
+  // determines how many bytes the loaded chunks and the colors set aside take up
+  long bytesUsed() {
+    long bytes = 0;
+    for (CompactMaze chunk : this.chunks.values()) {
+      bytes += chunk.bytesUsed();
+    }
+    for (int[] trail : this.trails.values()) {
+      bytes += 4L * trail.length;
+    }
+    return bytes;
+  }
+}
+
+// An index over the spanning tree of a perfect maze, rooted at the start, which answers
+// how far apart any two cells are and what path joins them without searching. Each cell
+// keeps its parent, its depth and one jump pointer to an ancestor further up, placed so
+// that any ancestor is reached in O(log n) jumps. That is the same bound as binary
+// lifting, but with three ints per cell instead of a table of log n.
+class PathIndex {
+  private final CompactMaze walls;
+  private final int[] parent;
+  private final int[] depth;
+  private final int[] jump;
+
+  PathIndex(CompactMaze walls) {
+    int cells = walls.cells();
+    if (walls.passages() != cells - 1) {
+      throw new IllegalArgumentException("Only a perfect maze has one path between cells");
+    }
+    this.walls = walls;
+    this.parent = new int[cells];
+    this.depth = new int[cells];
+    this.jump = new int[cells];
+
+    // breadth first from the start, so every parent is indexed before its children
+    int[] queue = new int[cells];
+    int[] neighbors = new int[4];
+    int head = 0;
+    int tail = 1;
+    this.parent[0] = 0;
+    this.jump[0] = 0;
+    while (head < tail) {
+      int next = queue[head];
+      head += 1;
+      int count = walls.connectingCells(next, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = neighbors[i];
+        if (c == this.parent[next]) {
+          continue;
+        }
+        // reaching more cells than there are means a loop
+        if (tail == cells) {
+          throw new IllegalArgumentException("Only a perfect maze has one path between cells");
+        }
+        this.parent[c] = next;
+        this.depth[c] = this.depth[next] + 1;
+        this.jump[c] = this.jumpFor(next);
+        queue[tail] = c;
+        tail += 1;
+      }
+    }
+    if (tail != cells) {
+      throw new IllegalArgumentException("Only a perfect maze has one path between cells");
+    }
+  }
+
+  // determines the jump pointer for a child of the given cell: twice as far as the
+  // cell's own jump when its two jumps above are the same length, otherwise its parent
+  int jumpFor(int p) {
+    int j = this.jump[p];
+    if (this.depth[p] - this.depth[j] == this.depth[j] - this.depth[this.jump[j]]) {
+      return this.jump[j];
+    }
+    return p;
+  }
+
+  // determines the ancestor of the given cell at the given depth, which is at most the
+  // depth of the cell
+  int ancestorAt(int index, int targetDepth) {
+    int at = index;
+    while (this.depth[at] > targetDepth) {
+      if (this.depth[this.jump[at]] >= targetDepth) {
+        at = this.jump[at];
+      }
+      else {
+        at = this.parent[at];
+      }
+    }
+    return at;
+  }
+
+  // determines the lowest common ancestor of the two given cells
+  int lowestCommonAncestor(int a, int b) {
+    int depthA = this.depth[a];
+    int depthB = this.depth[b];
+    a = this.ancestorAt(a, Math.min(depthA, depthB));
+    b = this.ancestorAt(b, Math.min(depthA, depthB));
+    // the jumps of two cells at the same depth land at the same depth
+    while (a != b) {
+      if (this.jump[a] != this.jump[b]) {
+        a = this.jump[a];
+        b = this.jump[b];
+      }
+      else {
+        a = this.parent[a];
+        b = this.parent[b];
+      }
+    }
+    return a;
+  }
+
+  // determines the depth of the given cell, which is its distance from the start
+  int depth(int index) {
+    return this.depth[index];
+  }
+
+  // determines how many steps the path between the two given cells takes
+  int distance(int a, int b) {
+    return this.depth[a] + this.depth[b] - 2 * this.depth[this.lowestCommonAncestor(a, b)];
+  }
+
+  // determines how many steps the path between the two given positions takes
+  int distance(Posn a, Posn b) {
+    return this.distance(this.walls.index(a), this.walls.index(b));
+  }
+
+  // determines the cells of the path from the first given cell to the second, both
+  // included
+  int[] path(int a, int b) {
+    int meet = this.lowestCommonAncestor(a, b);
+    int upSteps = this.depth[a] - this.depth[meet];
+    int[] path = new int[upSteps + this.depth[b] - this.depth[meet] + 1];
+    int at = a;
+    for (int i = 0; i <= upSteps; i += 1) {
+      path[i] = at;
+      at = this.parent[at];
+    }
+    at = b;
+    for (int i = path.length - 1; i > upSteps; i -= 1) {
+      path[i] = at;
+      at = this.parent[at];
+    }
+    return path;
+  }
+
+  // determines the positions of the path from the first given position to the second,
+  // both included
+  ArrayList<Posn> path(Posn a, Posn b) {
+    int[] cells = this.path(this.walls.index(a), this.walls.index(b));
+    ArrayList<Posn> path = new ArrayList<>(cells.length);
+    for (int i = 0; i < cells.length; i += 1) {
+      path.add(new Posn(this.walls.col(cells[i]), this.walls.row(cells[i])));
+    }
+    return path;
+  }
+}
+
+// Answers many start/goal path queries against one maze at once, spreading them across
+// a ForkJoinPool. The walls are only read while the queries run, so they are shared by
+// every thread, and each thread searches with its own reusable SearchScratch rather than
+// allocating per query. The paths come back in the order the queries were given.
+class PathQueries {
+  // the number of queries a task answers itself instead of splitting further
+  static final int LEAF_QUERIES = 16;
+  private final CompactMaze walls;
+  private final ForkJoinPool pool;
+  // the scratch of each thread, made the first time that thread answers a query
+  private final ThreadLocal<SearchScratch> scratch;
+
+  PathQueries(CompactMaze walls, ForkJoinPool pool) {
+    this.walls = walls;
+    this.pool = pool;
+    this.scratch = new ThreadLocal<>();
+  }
+
+  // determines the path from the first to the second position of each query, both
+  // included, in the order of the queries
+  ArrayList<ArrayList<Posn>> solveAll(List<Posn[]> queries) {
+    int[] from = new int[queries.size()];
+    int[] to = new int[queries.size()];
+    for (int i = 0; i < queries.size(); i += 1) {
+      Posn[] query = queries.get(i);
+      if (query.length != 2 || !this.inside(query[0]) || !this.inside(query[1])) {
+        throw new IllegalArgumentException("A query is a start and goal in the maze");
+      }
+      from[i] = this.walls.index(query[0]);
+      to[i] = this.walls.index(query[1]);
+    }
+
+    int[][] paths = new int[queries.size()][];
+    this.pool.invoke(new PathQuery(this, from, to, paths, 0, paths.length));
+
+    ArrayList<ArrayList<Posn>> results = new ArrayList<>(paths.length);
+    for (int[] path : paths) {
+      ArrayList<Posn> posns = new ArrayList<>(path.length);
+      for (int i = 0; i < path.length; i += 1) {
+        posns.add(new Posn(this.walls.col(path[i]), this.walls.row(path[i])));
+      }
+      results.add(posns);
+    }
+    return results;
+  }
+
+  // is the given position a cell of the maze?
+  boolean inside(Posn p) {
+    return p.x >= 0 && p.y >= 0 && p.x < this.walls.width() && p.y < this.walls.height();
+  }
+
+  // determines the cells of the path from one cell to another, both included, searching
+  // breadth first with the scratch of the calling thread
+  int[] solve(int from, int to) {
+    SearchScratch mine = this.scratch.get();
+    if (mine == null) {
+      mine = new SearchScratch(this.walls.cells());
+      this.scratch.set(mine);
+    }
+    return mine.bfs(this.walls, from, to);
+  }
+}
+
+// The arrays one thread reuses for every breadth-first search it runs. Instead of being
+// cleared between searches, each cell is stamped with the search that last reached it.
+class SearchScratch {
+  private final int[] stamp;
+  private final int[] parent;
+  private final int[] queue;
+  private final int[] neighbors;
+  private int search;
+
+  SearchScratch(int cells) {
+    this.stamp = new int[cells];
+    this.parent = new int[cells];
+    this.queue = new int[cells];
+    this.neighbors = new int[4];
+    this.search = 0;
+  }
+
+  // determines the cells of the shortest path from one cell to another in the given
+  // walls, both included
+  int[] bfs(CompactMaze walls, int from, int to) {
+    this.search += 1;
+    if (this.search == 0) {
+      // the stamps have wrapped around, so old stamps could pass for new ones
+      Arrays.fill(this.stamp, 0);
+      this.search = 1;
+    }
+    int head = 0;
+    int tail = 1;
+    this.queue[0] = from;
+    this.stamp[from] = this.search;
+    this.parent[from] = -1;
+
+    while (head < tail) {
+      int next = this.queue[head];
+      head += 1;
+      if (next == to) {
+        int length = 0;
+        for (int at = to; at >= 0; at = this.parent[at]) {
+          length += 1;
+        }
+        int[] path = new int[length];
+        for (int at = to; at >= 0; at = this.parent[at]) {
+          length -= 1;
+          path[length] = at;
+        }
+        return path;
+      }
+
+      int count = walls.connectingCells(next, this.neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = this.neighbors[i];
+        if (this.stamp[c] != this.search) {
+          this.stamp[c] = this.search;
+          this.parent[c] = next;
+          this.queue[tail] = c;
+          tail += 1;
+        }
+      }
+    }
+    throw new RuntimeException("no path exists");
+  }
+}
+
+// Answers the queries [lo, hi) of a PathQueries, splitting them in half until there are
+// few enough to answer directly
+class PathQuery extends RecursiveAction {
+  private final PathQueries queries;
+  private final int[] from;
+  private final int[] to;
+  private final int[][] paths;
+  private final int lo;
+  private final int hi;
+
+  PathQuery(PathQueries queries, int[] from, int[] to, int[][] paths, int lo, int hi) {
+    this.queries = queries;
+    this.from = from;
+    this.to = to;
+    this.paths = paths;
+    this.lo = lo;
+    this.hi = hi;
+  }
+
+  // EFFECT: fills in the path of every query of this task
+  protected void compute() {
+    if (this.hi - this.lo <= PathQueries.LEAF_QUERIES) {
+      for (int i = this.lo; i < this.hi; i += 1) {
+        this.paths[i] = this.queries.solve(this.from[i], this.to[i]);
+      }
+      return;
+    }
+    int mid = (this.lo + this.hi) >>> 1;
+    invokeAll(new PathQuery(this.queries, this.from, this.to, this.paths, this.lo, mid),
+        new PathQuery(this.queries, this.from, this.to, this.paths, mid, this.hi));
+  }
+}
+
+// A level-synchronous Breadth-first search over a CompactMaze on a ForkJoinPool. Each
+// level of the frontier is split into chunks which are expanded at once, every cell being
+// claimed by setting its bit in an atomic visited bitset so that only one chunk ever
+// takes it. Each chunk collects the cells it claims in its own buffer, and the buffers
+// are concatenated in chunk order to make the next level, so the visit order is grouped
+// by level. In a perfect maze every cell can only be claimed by its parent, so the order
+// is the same however many threads run.
+class ParallelBfs {
+  // the number of frontier cells a chunk expands
+  static final int LEAF_CELLS = 1 << 11;
+  private final CompactMaze walls;
+  private final ForkJoinPool pool;
+  private final AtomicLongArray visited;
+  private final int[] parent;
+  // the cells in the order they were reached, one level after another
+  private final int[] order;
+
+  ParallelBfs(CompactMaze walls, ForkJoinPool pool) {
+    this.walls = walls;
+    this.pool = pool;
+    this.visited = new AtomicLongArray((walls.cells() + 63) >>> 6);
+    this.parent = new int[walls.cells()];
+    this.order = new int[walls.cells()];
+  }
+
+  // EFFECT: searches from one cell until the level holding the other is reached, then
+  // returns how many cells of the visit order there are up to and including the target.
+  // Each search starts over, so one ParallelBfs can run any number of them.
+  int search(int from, int to) {
+    for (int word = 0; word < this.visited.length(); word += 1) {
+      this.visited.set(word, 0);
+    }
+    this.claim(from);
+    this.parent[from] = -1;
+    this.order[0] = from;
+    int levelStart = 0;
+    int levelEnd = 1;
+
+    while (levelStart < levelEnd) {
+      // the target is in the newest level as soon as it has been claimed
+      if ((this.visited.get(to >>> 6) & (1L << to)) != 0) {
+        for (int i = levelStart; i < levelEnd; i += 1) {
+          if (this.order[i] == to) {
+            return i + 1;
+          }
+        }
+      }
+
+      ArrayList<FrontierChunk> chunks = new ArrayList<>();
+      for (int lo = levelStart; lo < levelEnd; lo += LEAF_CELLS) {
+        chunks.add(new FrontierChunk(this, lo, Math.min(lo + LEAF_CELLS, levelEnd)));
+      }
+      if (chunks.size() == 1) {
+        chunks.get(0).compute();
+      }
+      else {
+        this.pool.invoke(new FrontierChunks(chunks));
+      }
+
+      int next = levelEnd;
+      for (FrontierChunk chunk : chunks) {
+        next = chunk.copyInto(this.order, next);
+      }
+      levelStart = levelEnd;
+      levelEnd = next;
+    }
+    throw new RuntimeException("no path exists");
+  }
+
+  // EFFECT: marks the given cell as visited. Returns false if it already was.
+  boolean claim(int cell) {
+    int word = cell >>> 6;
+    long bit = 1L << cell;
+    while (true) {
+      long old = this.visited.get(word);
+      if ((old & bit) != 0) {
+        return false;
+      }
+      if (this.visited.compareAndSet(word, old, old | bit)) {
+        return true;
+      }
+    }
+  }
+
+  // determines the walls this search runs over
+  CompactMaze walls() {
+    return this.walls;
+  }
+
+  // determines the cells in the order they were reached
+  int[] order() {
+    return this.order;
+  }
+
+  // determines the cell each cell was reached from, -1 for the start
+  int[] parents() {
+    return this.parent;
+  }
+}
+
+// Expands the frontier cells [lo, hi) of a ParallelBfs level, collecting every cell it
+// claims in its own buffer
+class FrontierChunk extends RecursiveAction {
+  private final ParallelBfs bfs;
+  private final int lo;
+  private final int hi;
+  private int[] claimed;
+  private int claimedCount;
+
+  FrontierChunk(ParallelBfs bfs, int lo, int hi) {
+    this.bfs = bfs;
+    this.lo = lo;
+    this.hi = hi;
+  }
+
+  // EFFECT: claims every unvisited cell linked to a cell of this chunk, recording the
+  // cell it was reached from
+  protected void compute() {
+    int[] order = this.bfs.order();
+    int[] parent = this.bfs.parents();
+    CompactMaze walls = this.bfs.walls();
+    int[] neighbors = new int[4];
+    // a cell links to at most 4 others, one of which it was reached from
+    this.claimed = new int[4 * (this.hi - this.lo)];
+    this.claimedCount = 0;
+
+    for (int i = this.lo; i < this.hi; i += 1) {
+      int cell = order[i];
+      int count = walls.connectingCells(cell, neighbors);
+      for (int k = 0; k < count; k += 1) {
+        if (this.bfs.claim(neighbors[k])) {
+          parent[neighbors[k]] = cell;
+          this.claimed[this.claimedCount] = neighbors[k];
+          this.claimedCount += 1;
+        }
+      }
+    }
+  }
+
+  // EFFECT: copies the cells this chunk claimed into the given array from the given
+  // position on. Returns the position after the last one copied.
+  int copyInto(int[] into, int at) {
+    System.arraycopy(this.claimed, 0, into, at, this.claimedCount);
+    return at + this.claimedCount;
+  }
+}
+
+// Expands every chunk of a ParallelBfs level at once
+class FrontierChunks extends RecursiveAction {
+  private final ArrayList<FrontierChunk> chunks;
+
+  FrontierChunks(ArrayList<FrontierChunk> chunks) {
+    this.chunks = chunks;
+  }
+
+  // EFFECT: expands every chunk
+  protected void compute() {
+    ForkJoinTask.invokeAll(this.chunks);
+  }
+}
+
+// A Breadth-first search over the passage bitsets of a CompactMaze which moves a whole
+// word of 64 cells at a time. A level of the frontier is a bitset, and the next level is
+// found by shifting it one bit (left and right) or one row of bits (up and down) and
+// masking it with the passages in that direction, then leaving out what was already
+// visited. Only the words of the frontier which have any cells in them are shifted, so a
+// level costs as many words as it touches rather than the whole maze.
+class BitFrontierSearch {
+  private final CompactMaze walls;
+  private final long[] right;
+  private final long[] down;
+  private final int words;
+  // a row of cells is rowWords whole words and rowBits more bits
+  private final int rowWords;
+  private final int rowBits;
+  private final long[] visited;
+  private long[] frontier;
+  private long[] next;
+  private int[] active;
+  private int activeCount;
+  private int[] touched;
+  private int touchedCount;
+  private int[] layerSizes;
+  private int layers;
+
+  BitFrontierSearch(CompactMaze walls) {
+    this.walls = walls;
+    this.right = walls.rightWords();
+    this.down = walls.downWords();
+    this.words = (walls.cells() + 63) >>> 6;
+    this.rowWords = walls.width() >>> 6;
+    this.rowBits = walls.width() & 63;
+    this.visited = new long[this.words];
+    this.frontier = new long[this.words];
+    this.next = new long[this.words];
+    this.active = new int[this.words];
+    this.touched = new int[this.words];
+    this.layerSizes = new int[16];
+  }
+
+  // EFFECT: searches from the given cell a level at a time, stopping after the level
+  // that reaches the given target (or once nothing new is reached, for a target of -1).
+  // Returns the distance to the target, or -1 if it was not reached.
+  int run(int from, int to) {
+    return this.run(from, to, false);
+  }
+
+  // EFFECT: searches from the given cell as run does, but if asked to flood, lets the
+  // frontier run along each word as far as its passages go within one step, which
+  // reaches the same cells in far fewer steps but no longer measures distances
+  int run(int from, int to, boolean flood) {
+    Arrays.fill(this.visited, 0);
+    Arrays.fill(this.frontier, 0);
+    this.visited[from >>> 6] = 1L << from;
+    this.frontier[from >>> 6] = 1L << from;
+    this.active[0] = from >>> 6;
+    this.activeCount = 1;
+    this.layerSizes[0] = 1;
+    this.layers = 1;
+
+    while (this.activeCount > 0) {
+      if (to >= 0 && (this.visited[to >>> 6] & (1L << to)) != 0) {
+        return this.layers - 1;
+      }
+      this.step(flood);
+    }
+    return -1;
+  }
+
+  // EFFECT: moves the frontier on by one level, or as far along each word as it goes
+  // if flooding
+  void step(boolean flood) {
+    this.touchedCount = 0;
+    for (int i = 0; i < this.activeCount; i += 1) {
+      int j = this.active[i];
+      long f = this.frontier[j];
+      this.frontier[j] = 0;
+      if (flood) {
+        long grown = f | ((f & this.right[j]) << 1) | ((f >>> 1) & this.right[j]);
+        while (grown != f) {
+          f = grown;
+          grown = f | ((f & this.right[j]) << 1) | ((f >>> 1) & this.right[j]);
+        }
+        this.visited[j] |= f;
+      }
+
+      // right: cell c moves to c + 1 if there is a passage right of c
+      long g = f & this.right[j];
+      this.offer(j, g << 1);
+      this.offer(j + 1, g >>> 63);
+      // left: cell c moves to c - 1 if there is a passage right of c - 1
+      this.offer(j, (f >>> 1) & this.right[j]);
+      if (j > 0) {
+        this.offer(j - 1, (f << 63) & this.right[j - 1]);
+      }
+      // down: cell c moves to c + width if there is a passage below c
+      g = f & this.down[j];
+      this.offer(j + this.rowWords, g << this.rowBits);
+      if (this.rowBits != 0) {
+        this.offer(j + this.rowWords + 1, g >>> (64 - this.rowBits));
+      }
+      // up: cell c moves to c - width if there is a passage below c - width
+      if (j - this.rowWords >= 0) {
+        this.offer(j - this.rowWords, (f >>> this.rowBits) & this.down[j - this.rowWords]);
+      }
+      if (this.rowBits != 0 && j - this.rowWords - 1 >= 0) {
+        this.offer(j - this.rowWords - 1,
+            (f << (64 - this.rowBits)) & this.down[j - this.rowWords - 1]);
+      }
+    }
+
+    this.activeCount = 0;
+    int size = 0;
+    for (int i = 0; i < this.touchedCount; i += 1) {
+      int j = this.touched[i];
+      long fresh = this.next[j] & ~this.visited[j];
+      this.next[j] = 0;
+      if (fresh != 0) {
+        this.visited[j] |= fresh;
+        this.frontier[j] = fresh;
+        this.active[this.activeCount] = j;
+        this.activeCount += 1;
+        size += Long.bitCount(fresh);
+      }
+    }
+    if (size > 0) {
+      if (this.layers == this.layerSizes.length) {
+        this.layerSizes = Arrays.copyOf(this.layerSizes, 2 * this.layers);
+      }
+      this.layerSizes[this.layers] = size;
+      this.layers += 1;
+    }
+  }
+
+  // EFFECT: adds the given cells to the given word of the next level
+  void offer(int word, long bits) {
+    if (bits == 0 || word >= this.words) {
+      return;
+    }
+    if (this.next[word] == 0) {
+      this.touched[this.touchedCount] = word;
+      this.touchedCount += 1;
+    }
+    this.next[word] |= bits;
+  }
+
+  // determines the bitset of every cell reachable from the given cell
+  long[] reachable(int from) {
+    this.run(from, -1, true);
+    return Arrays.copyOf(this.visited, this.words);
+  }
+
+  // determines how many steps the shortest path between the given cells takes, or -1
+  // if there is none
+  int distance(int from, int to) {
+    return this.run(from, to);
+  }
+
+  // determines how many cells are at each distance from the given cell, starting with
+  // the cell itself at distance 0
+  int[] layerSizes(int from) {
+    this.run(from, -1);
+    return Arrays.copyOf(this.layerSizes, this.layers);
+  }
+
+  // can every cell of the maze be reached from every other?
+  boolean isConnected() {
+    long count = 0;
+    for (long word : this.reachable(0)) {
+      count += Long.bitCount(word);
+    }
+    return count == this.walls.cells();
+  }
+}
+
+// A maze contracted to its skeleton: the junctions and dead ends (every cell which does
+// not have exactly two passages), plus any cells asked to be kept, joined by weighted
+// edges which are the corridors between them. The graph is built in one pass over the
+// cells. The inner cells of every corridor are packed one corridor after another into a
+// single run array, so searching only touches the skeleton, and the corridors of the
+// path found are unpacked cell by cell at the end.
+class CorridorGraph {
+  private final CompactMaze walls;
+  // the node of each cell, or -1 for the inner cells of corridors
+  private final int[] nodeOf;
+  private final int[] cellOf;
+  private final int nodeCount;
+  // each edge joins edgeFrom to edgeTo, and its inner cells are runs[runStart, runEnd)
+  // in order from edgeFrom
+  private int[] edgeFrom;
+  private int[] edgeTo;
+  private int[] runStart;
+  private int[] runEnd;
+  private int edgeCount;
+  private int[] runs;
+  private int runSize;
+  // the edges of node n are adjEdges[adjStart[n], adjStart[n + 1])
+  private final int[] adjStart;
+  private final int[] adjEdges;
+  // the result of the last search
+  private final int[] parentEdge;
+  private final int[] settled;
+
+  CorridorGraph(CompactMaze walls, int[] keep) {
+    this.walls = walls;
+    int cells = walls.cells();
+    int[] neighbors = new int[4];
+    this.nodeOf = new int[cells];
+    int nodes = 0;
+    for (int cell = 0; cell < cells; cell += 1) {
+      this.nodeOf[cell] = -1;
+      if (walls.connectingCells(cell, neighbors) != 2) {
+        this.nodeOf[cell] = nodes;
+        nodes += 1;
+      }
+    }
+    for (int cell : keep) {
+      if (this.nodeOf[cell] < 0) {
+        this.nodeOf[cell] = nodes;
+        nodes += 1;
+      }
+    }
+    this.nodeCount = nodes;
+    this.cellOf = new int[nodes];
+    for (int cell = 0; cell < cells; cell += 1) {
+      if (this.nodeOf[cell] >= 0) {
+        this.cellOf[this.nodeOf[cell]] = cell;
+      }
+    }
+
+    this.edgeFrom = new int[16];
+    this.edgeTo = new int[16];
+    this.runStart = new int[16];
+    this.runEnd = new int[16];
+    this.runs = new int[16];
+    int[] walk = new int[16];
+    int[] steps = new int[4];
+    for (int node = 0; node < nodes; node += 1) {
+      int start = this.cellOf[node];
+      int count = walls.connectingCells(start, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        // follow the corridor until it reaches another node
+        int prev = start;
+        int at = neighbors[i];
+        int walked = 0;
+        while (this.nodeOf[at] < 0) {
+          if (walked == walk.length) {
+            walk = Arrays.copyOf(walk, 2 * walk.length);
+          }
+          walk[walked] = at;
+          walked += 1;
+          walls.connectingCells(at, steps);
+          int forward = steps[0];
+          if (forward == prev) {
+            forward = steps[1];
+          }
+          prev = at;
+          at = forward;
+        }
+
+        // every corridor is walked from both ends, so it is kept from one of them
+        int end = this.nodeOf[at];
+        boolean keepIt = node < end
+            || (node == end && walked > 0 && walk[0] < walk[walked - 1]);
+        if (keepIt) {
+          this.addEdge(node, end, walk, walked);
+        }
+      }
+    }
+
+    this.adjStart = new int[nodes + 1];
+    for (int e = 0; e < this.edgeCount; e += 1) {
+      this.adjStart[this.edgeFrom[e] + 1] += 1;
+      this.adjStart[this.edgeTo[e] + 1] += 1;
+    }
+    for (int n = 0; n < nodes; n += 1) {
+      this.adjStart[n + 1] += this.adjStart[n];
+    }
+    this.adjEdges = new int[2 * this.edgeCount];
+    int[] filled = Arrays.copyOf(this.adjStart, nodes);
+    for (int e = 0; e < this.edgeCount; e += 1) {
+      this.adjEdges[filled[this.edgeFrom[e]]] = e;
+      filled[this.edgeFrom[e]] += 1;
+      this.adjEdges[filled[this.edgeTo[e]]] = e;
+      filled[this.edgeTo[e]] += 1;
+    }
+    this.parentEdge = new int[nodes];
+    this.settled = new int[nodes];
+  }
+
+  // EFFECT: adds an edge between the given nodes whose inner cells are the first given
+  // number of cells of walk, packing them onto the end of the runs
+  void addEdge(int from, int to, int[] walk, int walked) {
+    if (this.edgeCount == this.edgeFrom.length) {
+      this.edgeFrom = Arrays.copyOf(this.edgeFrom, 2 * this.edgeCount);
+      this.edgeTo = Arrays.copyOf(this.edgeTo, 2 * this.edgeCount);
+      this.runStart = Arrays.copyOf(this.runStart, 2 * this.edgeCount);
+      this.runEnd = Arrays.copyOf(this.runEnd, 2 * this.edgeCount);
+    }
+    if (this.runSize + walked > this.runs.length) {
+      this.runs = Arrays.copyOf(this.runs, Math.max(2 * this.runs.length, this.runSize + walked));
+    }
+    System.arraycopy(walk, 0, this.runs, this.runSize, walked);
+    this.edgeFrom[this.edgeCount] = from;
+    this.edgeTo[this.edgeCount] = to;
+    this.runStart[this.edgeCount] = this.runSize;
+    this.runEnd[this.edgeCount] = this.runSize + walked;
+    this.runSize += walked;
+    this.edgeCount += 1;
+  }
+
+  // determines how many nodes the skeleton has
+  int nodeCount() {
+    return this.nodeCount;
+  }
+
+  // determines how many corridors the skeleton has
+  int edgeCount() {
+    return this.edgeCount;
+  }
+
+  // determines the node of the given cell, or -1 if it is inside a corridor
+  int nodeOf(int cell) {
+    return this.nodeOf[cell];
+  }
+
+  // determines the cell of the given node
+  int cellOf(int node) {
+    return this.cellOf[node];
+  }
+
+  // determines how many steps the given corridor takes from one end to the other
+  int length(int edge) {
+    return this.runEnd[edge] - this.runStart[edge] + 1;
+  }
+
+  // determines the node at the other end of the given corridor from the given node
+  int across(int edge, int node) {
+    if (this.edgeFrom[edge] == node) {
+      return this.edgeTo[edge];
+    }
+    return this.edgeFrom[edge];
+  }
+
+  // EFFECT: Searches the skeleton from one node until the other is settled, always
+  // settling the node with the shortest path so far (Dijkstra's algorithm, with the
+  // nodes kept in an IntMinHeap). Returns how many nodes were settled, which are in
+  // settled() in the order they were settled.
+  int search(int from, int to) {
+    IntMinHeap open = new IntMinHeap(this.nodeCount);
+    long[] closed = new long[(this.nodeCount + 63) >>> 6];
+    int settledCount = 0;
+    this.parentEdge[from] = -1;
+    open.insertOrDecrease(from, 0);
+
+    while (!open.isEmpty()) {
+      int dist = open.minPriority();
+      int node = open.popMin();
+      closed[node >>> 6] |= 1L << node;
+      this.settled[settledCount] = node;
+      settledCount += 1;
+      if (node == to) {
+        return settledCount;
+      }
+
+      for (int i = this.adjStart[node]; i < this.adjStart[node + 1]; i += 1) {
+        int edge = this.adjEdges[i];
+        int other = this.across(edge, node);
+        if ((closed[other >>> 6] & (1L << other)) == 0
+            && open.insertOrDecrease(other, dist + this.length(edge))) {
+          this.parentEdge[other] = edge;
+        }
+      }
+    }
+    throw new RuntimeException("no path exists");
+  }
+
+  // determines the nodes the last search settled, in the order it settled them
+  int[] settled() {
+    return this.settled;
+  }
+
+  // determines every cell of the path the last search found from its start to the given
+  // node, both included, unpacking each corridor on the way
+  int[] pathTo(int to) {
+    int length = 1;
+    for (int node = to; this.parentEdge[node] >= 0;
+        node = this.across(this.parentEdge[node], node)) {
+      length += this.length(this.parentEdge[node]);
+    }
+
+    int[] path = new int[length];
+    int at = length - 1;
+    path[at] = this.cellOf[to];
+    for (int node = to; this.parentEdge[node] >= 0;
+        node = this.across(this.parentEdge[node], node)) {
+      int edge = this.parentEdge[node];
+      // the path runs backwards here, so a corridor entered at its from end is unpacked
+      // from its last cell
+      if (this.edgeTo[edge] == node && this.edgeFrom[edge] != node) {
+        for (int i = this.runEnd[edge] - 1; i >= this.runStart[edge]; i -= 1) {
+          at -= 1;
+          path[at] = this.runs[i];
+        }
+      }
+      else {
+        for (int i = this.runStart[edge]; i < this.runEnd[edge]; i += 1) {
+          at -= 1;
+          path[at] = this.runs[i];
+        }
+      }
+      at -= 1;
+      path[at] = this.cellOf[this.across(edge, node)];
+    }
+    return path;
+  }
+}
+
+// A hierarchical index for finding paths in very large mazes. The maze is split into
+// square tiles, and every cell beside a passage from one tile into another is an
+// entrance. The distances between the entrances of each tile, going only through that
+// tile, are found once by a search inside every tile (the tiles in parallel). A query
+// then searches the much smaller graph of entrances first, with A* and a Manhattan
+// heuristic, and only refines the tiles on the route it chose back into cells. The
+// tile distances are exact and every path crosses tiles at entrances, so the path found
+// is as short as any.
+class HierarchicalPaths {
+  private final CompactMaze walls;
+  private final int tileSize;
+  private final int tilesAcross;
+  // the cells of the entrances in ascending order, whose positions are their node ids
+  private final int[] entrances;
+  // the entrances of tile t are the nodes tileNodes[tileStart[t], tileStart[t + 1])
+  private final int[] tileStart;
+  private final int[] tileNodes;
+  // the edges of node n go to adjNode[adjStart[n], adjStart[n + 1]) at the matching weights
+  private final int[] adjStart;
+  private final int[] adjNode;
+  private final int[] adjWeight;
+  // the cells the last query settled in the entrance graph, in order
+  private int[] settled;
+  private int settledCount;
+  // the scratch of the queries, kept from one to the next so a query only costs what it
+  // touches: a node is closed in the query whose number it holds in closedIn, and its
+  // dist and parent only mean anything once the query has reached it
+  private final IntMinHeap open;
+  private final int[] dist;
+  private final int[] parent;
+  private final int[] closedIn;
+  private int query;
+  private final TileSearch scratch;
+
+  HierarchicalPaths(CompactMaze walls, int tileSize, ForkJoinPool pool) {
+    if (tileSize < 1) {
+      throw new IllegalArgumentException("Tiles must be at least one cell wide");
+    }
+    this.walls = walls;
+    this.tileSize = tileSize;
+    this.tilesAcross = (walls.width() + tileSize - 1) / tileSize;
+    int tiles = this.tilesAcross * ((walls.height() + tileSize - 1) / tileSize);
+    int cells = walls.cells();
+
+    long[] isEntrance = new long[(cells + 63) >>> 6];
+    int crossings = 0;
+    for (int cell = 0; cell < cells; cell += 1) {
+      if (walls.openRight(cell) && walls.col(cell) % tileSize == tileSize - 1) {
+        isEntrance[cell >>> 6] |= 1L << cell;
+        isEntrance[(cell + 1) >>> 6] |= 1L << (cell + 1);
+        crossings += 1;
+      }
+      if (walls.openDown(cell) && walls.row(cell) % tileSize == tileSize - 1) {
+        isEntrance[cell >>> 6] |= 1L << cell;
+        int below = cell + walls.width();
+        isEntrance[below >>> 6] |= 1L << below;
+        crossings += 1;
+      }
+    }
+    int nodes = 0;
+    for (long word : isEntrance) {
+      nodes += Long.bitCount(word);
+    }
+    this.entrances = new int[nodes];
+    this.tileStart = new int[tiles + 1];
+    int next = 0;
+    for (int cell = 0; cell < cells; cell += 1) {
+      if ((isEntrance[cell >>> 6] & (1L << cell)) != 0) {
+        this.entrances[next] = cell;
+        next += 1;
+        this.tileStart[this.tileOf(cell) + 1] += 1;
+      }
+    }
+    for (int t = 0; t < tiles; t += 1) {
+      this.tileStart[t + 1] += this.tileStart[t];
+    }
+    this.tileNodes = new int[nodes];
+    int[] filled = Arrays.copyOf(this.tileStart, tiles);
+    for (int node = 0; node < nodes; node += 1) {
+      int tile = this.tileOf(this.entrances[node]);
+      this.tileNodes[filled[tile]] = node;
+      filled[tile] += 1;
+    }
+
+    // the distances inside each tile are found on the pool, a tile per task
+    ArrayList<EntranceTile> tasks = new ArrayList<>();
+    for (int t = 0; t < tiles; t += 1) {
+      if (this.tileStart[t + 1] - this.tileStart[t] > 1) {
+        tasks.add(new EntranceTile(this, t));
+      }
+    }
+    pool.invoke(new EntranceTiles(tasks));
+
+    // every crossing is an edge both ways, as is every pair joined inside a tile
+    this.adjStart = new int[nodes + 1];
+    int[] crossFrom = new int[2 * crossings];
+    int[] crossTo = new int[2 * crossings];
+    int crossCount = 0;
+    for (int node = 0; node < nodes; node += 1) {
+      int cell = this.entrances[node];
+      if (walls.openRight(cell) && walls.col(cell) % tileSize == tileSize - 1) {
+        crossFrom[crossCount] = node;
+        crossTo[crossCount] = this.nodeOf(cell + 1);
+        crossFrom[crossCount + 1] = crossTo[crossCount];
+        crossTo[crossCount + 1] = node;
+        crossCount += 2;
+      }
+      if (walls.openDown(cell) && walls.row(cell) % tileSize == tileSize - 1) {
+        crossFrom[crossCount] = node;
+        crossTo[crossCount] = this.nodeOf(cell + walls.width());
+        crossFrom[crossCount + 1] = crossTo[crossCount];
+        crossTo[crossCount + 1] = node;
+        crossCount += 2;
+      }
+    }
+    for (int i = 0; i < crossCount; i += 1) {
+      this.adjStart[crossFrom[i] + 1] += 1;
+    }
+    for (EntranceTile task : tasks) {
+      task.countEdges(this.adjStart);
+    }
+    for (int n = 0; n < nodes; n += 1) {
+      this.adjStart[n + 1] += this.adjStart[n];
+    }
+    this.adjNode = new int[this.adjStart[nodes]];
+    this.adjWeight = new int[this.adjStart[nodes]];
+    filled = Arrays.copyOf(this.adjStart, nodes);
+    for (int i = 0; i < crossCount; i += 1) {
+      this.adjNode[filled[crossFrom[i]]] = crossTo[i];
+      this.adjWeight[filled[crossFrom[i]]] = 1;
+      filled[crossFrom[i]] += 1;
+    }
+    for (EntranceTile task : tasks) {
+      task.fillEdges(filled, this.adjNode, this.adjWeight);
+    }
+    this.settled = new int[16];
+    // the start and target of a query join the graph as two extra nodes
+    this.open = new IntMinHeap(nodes + 2);
+    this.dist = new int[nodes + 2];
+    this.parent = new int[nodes + 2];
+    this.closedIn = new int[nodes + 2];
+    this.scratch = new TileSearch(tileSize);
+  }
+
+  // determines the tile holding the given cell
+  int tileOf(int cell) {
+    return (this.walls.row(cell) / this.tileSize) * this.tilesAcross
+        + this.walls.col(cell) / this.tileSize;
+  }
+
+  // determines the node of the entrance at the given cell, or a negative number if the
+  // cell is not an entrance
+  int nodeOf(int cell) {
+    return Arrays.binarySearch(this.entrances, cell);
+  }
+
+  // determines how many entrances there are
+  int nodeCount() {
+    return this.entrances.length;
+  }
+
+  // determines how many edges join the entrances, counting each way separately
+  int edgeCount() {
+    return this.adjNode.length;
+  }
+
+  // determines the cell of the given entrance
+  int cellOf(int node) {
+    return this.entrances[node];
+  }
+
+  // determines the entrances of the given tile, in tileNodes[tileStart(t), tileStart(t + 1))
+  int tileStart(int tile) {
+    return this.tileStart[tile];
+  }
+
+  // determines the entrance at the given position in the lists of tile entrances
+  int tileNode(int i) {
+    return this.tileNodes[i];
+  }
+
+  // determines the walls this index is over
+  CompactMaze walls() {
+    return this.walls;
+  }
+
+  // determines how wide a tile is
+  int tileSize() {
+    return this.tileSize;
+  }
+
+  // determines the cells the last query settled in the entrance graph, in order
+  int[] settled() {
+    return Arrays.copyOf(this.settled, this.settledCount);
+  }
+
+  // determines every cell of a shortest path between the two given cells, both included.
+  // EFFECT: reuses the scratch of the last query, resetting only what that one touched.
+  int[] path(int from, int to) {
+    int nodes = this.entrances.length;
+    // the start and target join the graph as two extra nodes for this query only
+    int start = nodes;
+    int target = nodes + 1;
+    TileSearch scratch = this.scratch;
+    int fromTile = this.tileOf(from);
+    int toTile = this.tileOf(to);
+
+    scratch.search(this, to);
+    int[] toWeight = new int[this.tileStart[toTile + 1] - this.tileStart[toTile]];
+    for (int i = 0; i < toWeight.length; i += 1) {
+      toWeight[i] = scratch.distanceTo(this.cellOf(this.tileNodes[this.tileStart[toTile] + i]));
+    }
+    scratch.search(this, from);
+
+    if (this.query == Integer.MAX_VALUE) {
+      Arrays.fill(this.closedIn, 0);
+      this.query = 0;
+    }
+    this.query += 1;
+    this.open.clear();
+    this.settledCount = 0;
+    this.dist[start] = 0;
+    this.parent[start] = -1;
+    this.open.insertOrDecrease(start, this.manhattan(from, to));
+
+    while (!this.open.isEmpty()) {
+      int node = this.open.popMin();
+      this.closedIn[node] = this.query;
+      int cell = this.queryCell(node, from, to);
+      if (this.settledCount == this.settled.length) {
+        this.settled = Arrays.copyOf(this.settled, 2 * this.settled.length);
+      }
+      this.settled[this.settledCount] = cell;
+      this.settledCount += 1;
+      if (node == target) {
+        return this.refine(this.parent, target, from, to, scratch);
+      }
+
+      if (node == start) {
+        // from the start, only its own tile can be crossed to reach the graph
+        for (int i = this.tileStart[fromTile]; i < this.tileStart[fromTile + 1]; i += 1) {
+          int entrance = this.tileNodes[i];
+          this.relax(node, entrance, scratch.distanceTo(this.cellOf(entrance)), to);
+        }
+        if (fromTile == toTile) {
+          this.relax(node, target, scratch.distanceTo(to), to);
+        }
+        continue;
+      }
+      for (int i = this.adjStart[node]; i < this.adjStart[node + 1]; i += 1) {
+        this.relax(node, this.adjNode[i], this.adjWeight[i], to);
+      }
+      if (this.tileOf(cell) == toTile) {
+        for (int i = 0; i < toWeight.length; i += 1) {
+          if (this.tileNodes[this.tileStart[toTile] + i] == node) {
+            this.relax(node, target, toWeight[i], to);
+          }
+        }
+      }
+    }
+    throw new RuntimeException("no path exists");
+  }
+
+  // EFFECT: offers the other node the path through the given node and an edge of the
+  // given weight, which is ignored for an unreachable weight of -1. A node neither closed
+  // nor open has not been reached by this query, whatever its dist says.
+  void relax(int node, int other, int weight, int to) {
+    if (weight < 0 || this.closedIn[other] == this.query) {
+      return;
+    }
+    int candidate = this.dist[node] + weight;
+    if (!this.open.contains(other) || candidate < this.dist[other]) {
+      this.dist[other] = candidate;
+      this.parent[other] = node;
+      int cell = this.queryCell(other, -1, to);
+      this.open.insertOrDecrease(other, candidate + this.manhattan(cell, to));
+    }
+  }
+
+  // determines the cell of a node of a query, where the two extra nodes are the start
+  // and the target
+  int queryCell(int node, int from, int to) {
+    if (node == this.entrances.length) {
+      return from;
+    }
+    if (node == this.entrances.length + 1) {
+      return to;
+    }
+    return this.entrances[node];
+  }
+
+  // determines the Manhattan distance between two cells
+  int manhattan(int a, int b) {
+    return Math.abs(this.walls.col(a) - this.walls.col(b))
+        + Math.abs(this.walls.row(a) - this.walls.row(b));
+  }
+
+  // determines the cells of the path through the nodes from the start to the given
+  // node, searching inside each tile the path stays in to join them up
+  int[] refine(int[] parent, int target, int from, int to, TileSearch scratch) {
+    int hops = 0;
+    for (int node = target; node >= 0; node = parent[node]) {
+      hops += 1;
+    }
+    int[] route = new int[hops];
+    for (int node = target; node >= 0; node = parent[node]) {
+      hops -= 1;
+      route[hops] = this.queryCell(node, from, to);
+    }
+
+    int[] path = new int[16];
+    int size = 1;
+    path[0] = route[0];
+    for (int i = 1; i < route.length; i += 1) {
+      int[] leg;
+      if (this.tileOf(route[i - 1]) != this.tileOf(route[i])) {
+        leg = new int[] {route[i]};
+      }
+      else {
+        scratch.search(this, route[i - 1]);
+        leg = scratch.pathTo(route[i]);
+      }
+      if (size + leg.length > path.length) {
+        path = Arrays.copyOf(path, Math.max(2 * path.length, size + leg.length));
+      }
+      System.arraycopy(leg, 0, path, size, leg.length);
+      size += leg.length;
+    }
+    return Arrays.copyOf(path, size);
+  }
+}
+
+// A Breadth-first search which stays inside the tile of the cell it starts from, with
+// arrays indexed by position within the tile so they can be reused from search to search
+class TileSearch {
+  private final int[] dist;
+  private final int[] parent;
+  private final int[] queue;
+  private final int[] neighbors;
+  private CompactMaze walls;
+  private int tileSize;
+  // the column and row of the top left cell of the tile, and its width and height
+  private int left;
+  private int top;
+  private int across;
+  private int down;
+
+  TileSearch(int tileSize) {
+    this.dist = new int[tileSize * tileSize];
+    this.parent = new int[tileSize * tileSize];
+    this.queue = new int[tileSize * tileSize];
+    this.neighbors = new int[4];
+  }
+
+  // EFFECT: finds the distance of every cell in the tile of the given cell from it,
+  // going only through the tile
+  void search(HierarchicalPaths index, int from) {
+    this.walls = index.walls();
+    this.tileSize = index.tileSize();
+    this.left = this.walls.col(from) - this.walls.col(from) % this.tileSize;
+    this.top = this.walls.row(from) - this.walls.row(from) % this.tileSize;
+    this.across = Math.min(this.tileSize, this.walls.width() - this.left);
+    this.down = Math.min(this.tileSize, this.walls.height() - this.top);
+    Arrays.fill(this.dist, 0, this.across * this.down, -1);
+
+    int head = 0;
+    int tail = 1;
+    this.queue[0] = from;
+    this.dist[this.local(from)] = 0;
+    this.parent[this.local(from)] = -1;
+    while (head < tail) {
+      int next = this.queue[head];
+      head += 1;
+      int count = this.walls.connectingCells(next, this.neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = this.neighbors[i];
+        if (this.inside(c) && this.dist[this.local(c)] < 0) {
+          this.dist[this.local(c)] = this.dist[this.local(next)] + 1;
+          this.parent[this.local(c)] = next;
+          this.queue[tail] = c;
+          tail += 1;
+        }
+      }
+    }
+  }
+
+  // is the given cell in the tile of the last search?
+  boolean inside(int cell) {
+    int col = this.walls.col(cell) - this.left;
+    int row = this.walls.row(cell) - this.top;
+    return col >= 0 && row >= 0 && col < this.across && row < this.down;
+  }
+
+  // determines the position within the tile of the given cell of the tile
+  int local(int cell) {
+    return (this.walls.row(cell) - this.top) * this.across + this.walls.col(cell) - this.left;
+  }
+
+  // determines the distance of the given cell in the tile from where the last search
+  // started, or -1 if it can not be reached inside the tile
+  int distanceTo(int cell) {
+    return this.dist[this.local(cell)];
+  }
+
+  // determines the cells of the path from where the last search started to the given
+  // cell of the tile, leaving out the start
+  int[] pathTo(int cell) {
+    int[] path = new int[this.dist[this.local(cell)]];
+    int at = cell;
+    for (int i = path.length - 1; i >= 0; i -= 1) {
+      path[i] = at;
+      at = this.parent[this.local(at)];
+    }
+    return path;
+  }
+}
+
+// Finds the distances between the entrances of one tile of a HierarchicalPaths
+class EntranceTile extends RecursiveAction {
+  private final HierarchicalPaths index;
+  private final int tile;
+  // the edges found, from the i-th entrance of the tile to the j-th at weights[i][j]
+  private int[][] weights;
+
+  EntranceTile(HierarchicalPaths index, int tile) {
+    this.index = index;
+    this.tile = tile;
+  }
+
+  // EFFECT: searches the tile from each of its entrances
+  protected void compute() {
+    int first = this.index.tileStart(this.tile);
+    int count = this.index.tileStart(this.tile + 1) - first;
+    TileSearch scratch = new TileSearch(this.index.tileSize());
+    this.weights = new int[count][count];
+    for (int i = 0; i < count; i += 1) {
+      scratch.search(this.index, this.index.cellOf(this.index.tileNode(first + i)));
+      for (int j = 0; j < count; j += 1) {
+        this.weights[i][j] = scratch.distanceTo(this.index.cellOf(this.index.tileNode(first + j)));
+      }
+    }
+  }
+
+  // EFFECT: adds how many edges leave each entrance of this tile to the given counts,
+  // which are offset by one node
+  void countEdges(int[] counts) {
+    int first = this.index.tileStart(this.tile);
+    for (int i = 0; i < this.weights.length; i += 1) {
+      for (int j = 0; j < this.weights.length; j += 1) {
+        if (i != j && this.weights[i][j] > 0) {
+          counts[this.index.tileNode(first + i) + 1] += 1;
+        }
+      }
+    }
+  }
+
+  // EFFECT: writes the edges leaving each entrance of this tile at the given next free
+  // positions of the edge arrays
+  void fillEdges(int[] filled, int[] adjNode, int[] adjWeight) {
+    int first = this.index.tileStart(this.tile);
+    for (int i = 0; i < this.weights.length; i += 1) {
+      int node = this.index.tileNode(first + i);
+      for (int j = 0; j < this.weights.length; j += 1) {
+        if (i != j && this.weights[i][j] > 0) {
+          adjNode[filled[node]] = this.index.tileNode(first + j);
+          adjWeight[filled[node]] = this.weights[i][j];
+          filled[node] += 1;
+        }
+      }
+    }
+  }
+}
+
+// Finds the distances between the entrances of every tile of a HierarchicalPaths at once
+class EntranceTiles extends RecursiveAction {
+  private final ArrayList<EntranceTile> tiles;
+
+  EntranceTiles(ArrayList<EntranceTile> tiles) {
+    this.tiles = tiles;
+  }
+
+  // EFFECT: searches every tile
+  protected void compute() {
+    ForkJoinTask.invokeAll(this.tiles);
+  }
+}
+
+// Solves a maze by filling in its dead ends: a cell with only one way out (other than
+// the start and the exit) can't be on the way to the exit, so it is filled, which can
+// leave the cell next to it as a new dead end, and so on until every dead end is gone.
+// In a perfect maze only the path from the start to the exit is left; in a braided
+// maze its loops are left as well. Each cell keeps how many open, unfilled neighbors it
+// has, and the rows are split into bands which are filled at the same time. A band only
+// ever changes its own cells, so when a fill reaches the edge of a band the neighbor
+// across it is passed on, and picked up by its own band in the next sweep.
+class DeadEndFiller {
+  // the number of rows in a band when the maze picks the bands itself
+  static final int BAND_ROWS = 64;
+  private final CompactMaze walls;
+  private final ForkJoinPool pool;
+  private final int bandRows;
+  private final int[] degree;
+  private final boolean[] filled;
+  private final ArrayList<FillBand> bands;
+  // the cells in the order they were filled, one sweep after another
+  private final int[] order;
+  private int orderSize;
+  private int sweeps;
+
+  DeadEndFiller(CompactMaze walls, int bandRows, ForkJoinPool pool) {
+    if (bandRows < 1) {
+      throw new IllegalArgumentException("A band has at least one row");
+    }
+    this.walls = walls;
+    this.pool = pool;
+    this.bandRows = bandRows;
+    this.degree = new int[walls.cells()];
+    this.filled = new boolean[walls.cells()];
+    this.order = new int[walls.cells()];
+    this.bands = new ArrayList<>();
+    for (int row = 0; row < walls.height(); row += bandRows) {
+      this.bands.add(new FillBand(this, row * walls.width(),
+          Math.min(row + bandRows, walls.height()) * walls.width()));
+    }
+  }
+
+  // EFFECT: fills every dead end of the maze, sweeping the bands until none of them has
+  // anything left to fill. Returns how many cells were filled.
+  int fill() {
+    ArrayList<FillBand> busy = new ArrayList<>(this.bands);
+    while (!busy.isEmpty()) {
+      if (busy.size() == 1) {
+        busy.get(0).compute();
+      }
+      else {
+        this.pool.invoke(new FillBands(busy));
+      }
+      // each band reopens for the next sweep, then hands on what reached its edges
+      for (FillBand band : busy) {
+        band.reinitialize();
+        this.orderSize = band.copyInto(this.order, this.orderSize);
+      }
+      for (FillBand band : busy) {
+        band.passOn();
+      }
+      this.sweeps += 1;
+
+      busy = new ArrayList<>();
+      for (FillBand band : this.bands) {
+        if (band.hasWork()) {
+          busy.add(band);
+        }
+      }
+    }
+    return this.orderSize;
+  }
+
+  // EFFECT: takes away the passage to the given cell from a filled neighbor, and hands
+  // it to its band if that leaves it a dead end. Only called between sweeps.
+  void closeFrom(int cell) {
+    if (this.filled[cell]) {
+      return;
+    }
+    this.degree[cell] -= 1;
+    if (this.isDeadEnd(cell)) {
+      this.bands.get(this.walls.row(cell) / this.bandRows).receive(cell);
+    }
+  }
+
+  // is the given cell unfilled, with at most one way out, and neither start nor exit?
+  boolean isDeadEnd(int cell) {
+    return !this.filled[cell] && this.degree[cell] <= 1 && cell != 0
+        && cell != this.walls.cells() - 1;
+  }
+
+  // determines the cell each cell left unfilled was reached from, going out from the
+  // given one without crossing a filled cell: -1 for the given cell and -2 for the cells
+  // it doesn't reach
+  int[] parentsFrom(int from) {
+    int[] parent = new int[this.walls.cells()];
+    Arrays.fill(parent, -2);
+    int[] queue = new int[this.walls.cells()];
+    int[] neighbors = new int[4];
+    parent[from] = -1;
+    queue[0] = from;
+    int head = 0;
+    int tail = 1;
+    while (head < tail) {
+      int cell = queue[head];
+      head += 1;
+      int count = this.walls.connectingCells(cell, neighbors);
+      for (int k = 0; k < count; k += 1) {
+        if (!this.filled[neighbors[k]] && parent[neighbors[k]] == -2) {
+          parent[neighbors[k]] = cell;
+          queue[tail] = neighbors[k];
+          tail += 1;
+        }
+      }
+    }
+    return parent;
+  }
+
+  // determines the walls this filler runs over
+  CompactMaze walls() {
+    return this.walls;
+  }
+
+  // determines how many open, unfilled neighbors each cell has
+  int[] degrees() {
+    return this.degree;
+  }
+
+  // determines which cells are filled
+  boolean[] filledCells() {
+    return this.filled;
+  }
+
+  // determines the cells in the order they were filled
+  int[] order() {
+    return this.order;
+  }
+
+  // determines how many cells have been filled
+  int filledCount() {
+    return this.orderSize;
+  }
+
+  // determines how many sweeps the fill took
+  int sweeps() {
+    return this.sweeps;
+  }
+
+  // determines how many bands the rows are split into
+  int bandCount() {
+    return this.bands.size();
+  }
+}
+
+// The cells of a band of whole rows of a DeadEndFiller. The first sweep counts the ways
+// out of each of its cells and fills every dead end it finds, following each one along
+// its corridor for as long as it stays in the band. Later sweeps start from the cells
+// the neighboring bands handed it instead.
+class FillBand extends RecursiveAction {
+  private final DeadEndFiller filler;
+  private final int lo;
+  private final int hi;
+  private boolean counted;
+  // cells to fill, from this band or handed over by another
+  private final IntStack work;
+  // cells of other bands which lost a neighbor in this sweep
+  private int[] edge;
+  private int edgeSize;
+  // the cells this band filled in this sweep
+  private int[] filledNow;
+  private int filledNowSize;
+
+  FillBand(DeadEndFiller filler, int lo, int hi) {
+    this.filler = filler;
+    this.lo = lo;
+    this.hi = hi;
+    this.work = new IntStack();
+    this.edge = new int[16];
+    this.filledNow = new int[16];
+  }
+
+  // EFFECT: fills every dead end of this band it can reach without leaving the band
+  protected void compute() {
+    CompactMaze walls = this.filler.walls();
+    int[] degree = this.filler.degrees();
+    int[] neighbors = new int[4];
+    this.filledNowSize = 0;
+    this.edgeSize = 0;
+
+    if (!this.counted) {
+      this.counted = true;
+      for (int cell = this.lo; cell < this.hi; cell += 1) {
+        degree[cell] = walls.connectingCells(cell, neighbors);
+      }
+      for (int cell = this.lo; cell < this.hi; cell += 1) {
+        if (this.filler.isDeadEnd(cell)) {
+          this.fillFrom(cell, walls, degree, neighbors);
+        }
+      }
+    }
+    else {
+      while (!this.work.isEmpty()) {
+        this.fillFrom(this.work.pop(), walls, degree, neighbors);
+      }
+    }
+  }
+
+  // EFFECT: fills the given cell if it is a dead end, and every dead end that leaves
+  // behind it in this band
+  void fillFrom(int start, CompactMaze walls, int[] degree, int[] neighbors) {
+    boolean[] filled = this.filler.filledCells();
+    this.work.add(start);
+    while (!this.work.isEmpty()) {
+      int cell = this.work.pop();
+      if (!this.filler.isDeadEnd(cell)) {
+        continue;
+      }
+      filled[cell] = true;
+      this.filledNow = this.append(this.filledNow, this.filledNowSize, cell);
+      this.filledNowSize += 1;
+
+      int count = walls.connectingCells(cell, neighbors);
+      for (int k = 0; k < count; k += 1) {
+        int next = neighbors[k];
+        if (next < this.lo || next >= this.hi) {
+          this.edge = this.append(this.edge, this.edgeSize, next);
+          this.edgeSize += 1;
+        }
+        else if (!filled[next]) {
+          degree[next] -= 1;
+          this.work.add(next);
+        }
+      }
+    }
   }
 
-  // Do the two Nodes provided have the same representative?
-  boolean sameRep(Node nodeOne, Node nodeTwo) {
-    return this.findBlob(nodeOne) == this.findBlob(nodeTwo);
+  // EFFECT: hands a cell of this band to it, to be filled in the next sweep. Only
+  // called between sweeps.
+  void receive(int cell) {
+    this.work.add(cell);
   }
 
-  // EFFECT: updates the representative of the nodeToBeChanged passed in according
-  // to the master representative of the given current representative node.
-  void union(Node currRep, Node nodeToBeChanged) {
-    Node masterRep = this.findBlob(currRep);
-    this.updateRep(nodeToBeChanged, masterRep);
+  // EFFECT: closes the passages to other bands of the cells this band filled in the
+  // last sweep. Only called between sweeps.
+  void passOn() {
+    for (int i = 0; i < this.edgeSize; i += 1) {
+      this.filler.closeFrom(this.edge[i]);
+    }
+    this.edgeSize = 0;
+  }
+
+  // does this band have cells to fill in the next sweep?
+  boolean hasWork() {
+    return !this.work.isEmpty();
   }
 
+  // EFFECT: copies the cells this band filled in the last sweep into the given array
+  // from the given position on. Returns the position after the last one copied.
+  int copyInto(int[] into, int at) {
+    System.arraycopy(this.filledNow, 0, into, at, this.filledNowSize);
+    return at + this.filledNowSize;
+  }
+
+  // EFFECT: stores the given value at the given position of the given array, growing
+  // it first if it is full. Returns the array stored into.
+  int[] append(int[] into, int at, int value) {
+    if (at == into.length) {
+      into = Arrays.copyOf(into, into.length * 2);
+    }
+    into[at] = value;
+    return into;
+  }
+}
+
+// Fills the dead ends of every busy band of a DeadEndFiller at once
+class FillBands extends RecursiveAction {
+  private final ArrayList<FillBand> bands;
+
+  FillBands(ArrayList<FillBand> bands) {
+    this.bands = bands;
+  }
+
+  // EFFECT: fills every band
+  protected void compute() {
+    ForkJoinTask.invokeAll(this.bands);
+  }
 }
 
 // represents a Maze
-class Maze {
-  private final ArrayList<ArrayList<Cell>> grid;
-  private final ArrayList<Node> nodes;
-  private final ArrayList<Edge> edges;
+class Maze implements IMazeView {
+  // the Cells of this maze and the Nodes and Edges linking them. Only rendering, coloring
+  // and the searches that hand back Cells use them, so a generated maze builds them from
+  // its walls the first time one of those asks.
+  private ArrayList<ArrayList<Cell>> grid;
+  private ArrayList<Node> nodes;
+  private ArrayList<Edge> edges;
+  // the seed the walls were generated from, which also weighs the Edges of the board
+  private final long seed;
   //the width and the height of the maze is the number
   //of nodes in the width and the height. this is
   //not the same as the size of the render
@@ -723,31 +4874,69 @@ class Maze {
   // scale represents how many pixels one side of the cell takes up
   private final int scale;
   private final Optional<Boolean> bias; //empty is no bias, false is vert bias, true is horiz bias
+  // the passages of this maze packed two bits per cell, which movement, searching and
+  // rendering read instead of comparing the edge lists of neighboring nodes
+  private final CompactMaze walls;
+  // the index of the paths between cells, built the first time a path is asked for
+  private PathIndex paths;
+  // the batch solver of this maze, whose per-thread scratch is kept from batch to batch,
+  // made the first time a batch is solved
+  private PathQueries queries;
+  // the junctions and dead ends of this maze and the corridors between them, built the
+  // first time a search runs on them
+  private CorridorGraph corridors;
+  // the tiles and entrances of this maze for hierarchical searches, built the first time
+  // one runs
+  private HierarchicalPaths tiles;
+  // the distance of each cell from the exit, built the first time it is asked for. A
+  // new maze is a new Maze, so this never outlives the walls it was measured in.
+  private int[] toExit;
+  // the cells of the shortest path from the start to the exit, both included, as a
+  // bitset built along with toExit
+  private long[] onSolution;
 
+  // Constructor which makes a new random maze
   Maze(int width, int height, int scale, Optional<Boolean> bias) {
+    this(width, height, scale, bias, new SplittableRandom().nextLong());
+  }
+
+  // Constructor which makes the maze of the given seed, so the same seed (and
+  // dimensions and bias) always gives the same maze
+  Maze(int width, int height, int scale, Optional<Boolean> bias, long seed) {
+    this(width, height, scale, bias, seed, new KruskalGenerator());
+  }
+  
+  // Constructor which makes the maze of the given seed with the given generator. The
+  // Cells are linked to match the walls it knocked down, by Edges weighted with the wall
+  // weights of the same seed, once something first needs them.
+  Maze(int width, int height, int scale, Optional<Boolean> bias, long seed,
+      IMazeGenerator generator) {
     this.scale = scale;
     this.width = width;
     this.height = height;
     this.bias = bias;
-    // Construct and link the list representation of the Maze
-    Triple<ArrayList<ArrayList<Cell>>, ArrayList<Node>, ArrayList<Edge>> boardInfo = createNewBoard(
-        width, height, scale);
-
-    this.grid = boardInfo.first();
-    this.nodes = boardInfo.second();
-    this.edges = new UnionFind(nodes, boardInfo.third()).kruskals();
+    this.seed = seed;
+    this.walls = new CompactMaze(width, height);
+    generator.generate(this.walls, bias, seed);
   }
-  
+
   Maze(ArrayList<ArrayList<Cell>> grid,
       ArrayList<Node> nodes, ArrayList<Edge> edges,
       int scale, Optional<Boolean> bias) {
     this.grid = grid;
     this.nodes = nodes;
     this.edges = edges;
+    this.seed = 0;
     this.scale = scale;
     this.bias = bias;
     this.width = grid.get(0).size();
     this.height = grid.size();
+    this.walls = new CompactMaze(grid);
+    for (ArrayList<Cell> row : grid) {
+      for (Cell c : row) {
+        c.indexNode(this.walls);
+      }
+    }
   }
 
   // renders this maze
@@ -758,14 +4947,14 @@ class Maze {
     // edge between the cells. 
     for (int rowIdx = 0; rowIdx < height; rowIdx += 1) {
       for (int colIdx = 0; colIdx < width; colIdx += 1) {
-        Cell currCell = grid.get(rowIdx).get(colIdx);
+        Cell currCell = this.board().get(rowIdx).get(colIdx);
         if (rowIdx == 0 && colIdx == 0) {
           currCell.updateColor(Color.green);
         }
         if (rowIdx == height - 1 && colIdx == width - 1) {
           currCell.updateColor(Color.red);
         }
-        currCell.renderSelf(grid, cpi, scale); 
+        currCell.renderSelf(walls, cpi, scale);
       }
     }
     
@@ -774,68 +4963,183 @@ class Maze {
   
   //determines the Cell at the given position
   Cell cellAt(Posn p) {
-    return this.grid.get(p.y).get(p.x);
+    return this.board().get(p.y).get(p.x);
+  }
+
+  // determines the Cells of this Maze by row
+  // EFFECT: links the Cells, Nodes and Edges to match the walls the first time
+  ArrayList<ArrayList<Cell>> board() {
+    if (this.grid == null) {
+      Triple<ArrayList<ArrayList<Cell>>, ArrayList<Node>, ArrayList<Edge>> boardInfo =
+          this.createBoardFrom(this.walls,
+              new EdgeWeights(this.width, this.height, this.bias, this.seed));
+      this.grid = boardInfo.first();
+      this.nodes = boardInfo.second();
+      this.edges = boardInfo.third();
+    }
+    return this.grid;
+  }
+
+  // determines the index of the paths between any two cells of this Maze, which must be
+  // perfect, building it the first time
+  PathIndex paths() {
+    if (this.paths == null) {
+      this.paths = new PathIndex(this.walls);
+    }
+    return this.paths;
+  }
+
+  // determines the path between the two positions of each query, both included, in the
+  // order of the queries. The queries are answered in parallel on the common ForkJoinPool.
+  ArrayList<ArrayList<Posn>> solveAll(List<Posn[]> queries) {
+    return this.queries().solveAll(queries);
+  }
+
+  // determines the batch solver of this Maze, making it the first time on the common
+  // ForkJoinPool
+  PathQueries queries() {
+    if (this.queries == null) {
+      this.queries = new PathQueries(this.walls, ForkJoinPool.commonPool());
+    }
+    return this.queries;
+  }
+
+  // determines the distance of every cell of this Maze from the nearest of the given
+  // positions, or -1 where none of them can be reached
+  int[] distanceField(List<Posn> sources) {
+    int[] indices = new int[sources.size()];
+    for (int i = 0; i < indices.length; i += 1) {
+      indices[i] = this.walls.index(sources.get(i));
+    }
+    return this.walls.distancesFrom(indices);
+  }
+
+  // determines the distance of every cell of this Maze from the exit, measuring it the
+  // first time along with the cells on the way from the start to the exit
+  int[] distanceToExit() {
+    if (this.toExit == null) {
+      this.toExit = this.walls.distancesFrom(new int[] {this.walls.cells() - 1});
+      this.onSolution = new long[(this.walls.cells() + 63) >>> 6];
+      for (int at = 0; at >= 0; at = this.stepToExit(at)) {
+        this.onSolution[at >>> 6] |= 1L << at;
+      }
+    }
+    return this.toExit;
+  }
+
+  // determines the neighbor of the cell with the given index which is one step closer
+  // to the exit, or -1 if the cell is the exit (or can not reach it)
+  int stepToExit(int index) {
+    int[] dist = this.distanceToExit();
+    int[] neighbors = new int[4];
+    int count = this.walls.connectingCells(index, neighbors);
+    for (int i = 0; i < count; i += 1) {
+      if (dist[index] > 0 && dist[neighbors[i]] == dist[index] - 1) {
+        return neighbors[i];
+      }
+    }
+    return -1;
+  }
+
+  // is the cell at the given position on the shortest path from the start to the exit?
+  boolean onSolution(Posn pos) {
+    this.distanceToExit();
+    int index = this.walls.index(pos);
+    return (this.onSolution[index >>> 6] & (1L << index)) != 0;
+  }
+
+  // determines the position of the next cell on the way from the given position to the
+  // exit, which is the given position itself at the exit
+  Posn hint(Posn pos) {
+    int next = this.stepToExit(this.walls.index(pos));
+    if (next < 0) {
+      return pos;
+    }
+    return new Posn(this.walls.col(next), this.walls.row(next));
+  }
+
+  // determines the path from the exit back to the start, leaving out the exit, as dfs
+  // and bfs give it
+  ArrayList<Cell> solution() {
+    ArrayList<Cell> path = new ArrayList<>();
+    for (int at = 0; at >= 0; at = this.stepToExit(at)) {
+      path.add(this.cellAt(at));
+    }
+    path.remove(path.size() - 1);
+    Collections.reverse(path);
+    return path;
+  }
+
+  // renders this maze with every cell shaded by its distance from the exit, from red
+  // next to the exit to blue furthest from it
+  ComputedPixelImage renderHeatmap() {
+    int[] dist = this.distanceToExit();
+    int furthest = 1;
+    for (int d : dist) {
+      furthest = Math.max(furthest, d);
+    }
+    ComputedPixelImage cpi = new ComputedPixelImage(width * scale, height * scale);
+    for (int index = 0; index < dist.length; index += 1) {
+      int heat = 255 - (int) (255L * Math.max(dist[index], 0) / furthest);
+      this.walls.renderCell(cpi, index, scale, new Color(heat, 0, 255 - heat));
+      this.walls.renderWalls(cpi, index, scale);
+    }
+    return cpi;
+  }
+
+  // determines the Cell with the given index into the walls of this Maze
+  Cell cellAt(int index) {
+    return this.board().get(this.walls.row(index)).get(this.walls.col(index));
+  }
+
+  // determines the passages of this Maze, packed two bits per cell
+  CompactMaze walls() {
+    return this.walls;
   }
   
   //resets the colors of the cells in this grid to be the default (default being Light gray)
   void resetGridColors() {
-    for (int rowIdx = 0; rowIdx < this.grid.size(); rowIdx += 1) {
-      for (int colIdx = 0; colIdx < this.grid.get(0).size(); colIdx += 1) {
-        this.grid.get(rowIdx).get(colIdx).updateColor(Color.LIGHT_GRAY);
+    for (int rowIdx = 0; rowIdx < this.height; rowIdx += 1) {
+      for (int colIdx = 0; colIdx < this.width; colIdx += 1) {
+        this.board().get(rowIdx).get(colIdx).updateColor(Color.LIGHT_GRAY);
       }
     }
   }
 
-  // Creates a new board for this Maze, with a nested list of connected Nodes.
-  Triple<ArrayList<ArrayList<Cell>>, ArrayList<Node>, ArrayList<Edge>> createNewBoard(
-      int width, int height, int scale) {
+  // Creates a new board of Cells whose Nodes are linked exactly where the given walls
+  // have passages, every one of them (loops included) by an edge with the weight of its
+  // wall
+  Triple<ArrayList<ArrayList<Cell>>, ArrayList<Node>, ArrayList<Edge>> createBoardFrom(
+      CompactMaze walls, EdgeWeights weights) {
 
     ArrayList<ArrayList<Cell>> result = new ArrayList<>();
     ArrayList<Node> nodesResult = new ArrayList<>();
     ArrayList<Edge> edgesResult = new ArrayList<>();
 
-    // For each position (colIdx, rowIdx) add a Cell, containing a Node and its
-    // respective
-    // positions. Note: Nodes are made here without any connections.
-    for (int rowIdx = 0; rowIdx < height; rowIdx += 1) {
+    for (int rowIdx = 0; rowIdx < walls.height(); rowIdx += 1) {
       ArrayList<Cell> currRow = new ArrayList<>();
-      for (int colIdx = 0; colIdx < width; colIdx += 1) {
-
+      for (int colIdx = 0; colIdx < walls.width(); colIdx += 1) {
         Node currNode = new Node();
-        Posn currPos = new Posn(colIdx, rowIdx);
-        double vertWeight = 1;
-        double horizWeight = 1;
-        
-        if (bias.isPresent()) {
-          if (bias.get()) {
-            vertWeight = 5;
-          }
-          else {
-            horizWeight = 5;
-          }
-        }
-        
-        currRow.add(new Cell(currNode, currPos));
-        // if we are not on the leftmost col, make a connection between the current node
-        // and to it's left
-        if (colIdx != 0) {
-          edgesResult.add(currRow.get(colIdx - 1).connectNode(currNode, horizWeight));
+        int index = walls.index(colIdx, rowIdx);
+        currNode.assignIndex(index);
+        currRow.add(new Cell(currNode, new Posn(colIdx, rowIdx)));
+
+        if (walls.openLeft(index)) {
+          edgesResult.add(currRow.get(colIdx - 1).linkNode(currNode,
+              weights.weight(walls.wallBetween(index - 1, index))));
         }
-        // if we are not on the topmost row, make a connection between the current node
-        // and to it's above
-        if (rowIdx != 0) {
-          edgesResult.add(result.get(rowIdx - 1).get(colIdx).connectNode(currNode, vertWeight));
+        if (walls.openUp(index)) {
+          edgesResult.add(result.get(rowIdx - 1).get(colIdx).linkNode(currNode,
+              weights.weight(walls.wallBetween(index - walls.width(), index))));
         }
-
         nodesResult.add(currNode);
       }
-
       result.add(currRow);
     }
 
     return new Triple<ArrayList<ArrayList<Cell>>, ArrayList<Node>, ArrayList<Edge>>(
         result,
-        nodesResult, 
+        nodesResult,
         edgesResult
         );
   }
@@ -844,24 +5148,14 @@ class Maze {
 
   // Can the player move to the target position in this Maze, with respect to its
   // current position?
-  boolean playerCanMove(Posn currPos, Posn targPos) {
-    if (targPos.x < 0 
-        || targPos.y < 0 
-        || targPos.x >= this.grid.get(0).size()
-        || targPos.y >= this.grid.size()) {
-      return false;
-    }
-    
-    Cell currCell = this.grid.get(currPos.y).get(currPos.x);
-    Cell targCell = this.grid.get(targPos.y).get(targPos.x);
-
-    return currCell.isLinkedTo(targCell).isPresent();
+  public boolean playerCanMove(Posn currPos, Posn targPos) {
+    return this.walls.playerCanMove(currPos, targPos);
   }
   
   // Colors the cell at the given position in this Maze. The color that the cell
   // is updated to be is dependent on the color given.
   void colorCell(Posn pos, Color color) {
-    Cell currCell = this.grid.get(pos.y).get(pos.x);
+    Cell currCell = this.board().get(pos.y).get(pos.x);
     currCell.colorSelf(color);
   }
   
@@ -871,8 +5165,8 @@ class Maze {
     int x = playerPos.x;
     int y = playerPos.y;
     
-    return x == this.grid.get(0).size() - 1
-        && y == this.grid.size() - 1;  
+    return x == this.width - 1
+        && y == this.height - 1;  
   }
 
   // <----------------------- DFS & BFS ALGORITHM ----------------------------->
@@ -884,7 +5178,7 @@ class Maze {
   // from the
   // the start to finish.
   SearchResults dfs() {
-    return search(new Stack<CellInfo>());
+    return this.search(true);
   }
 
   // Conducts a Breadth-First search of this Maze to find the path from the start
@@ -892,59 +5186,336 @@ class Maze {
   // When complete, returns an Iterator of Cells which contains the target path
   // from the start to the finish.
   SearchResults bfs() {
-    return search(new Queue<CellInfo>());
-  }
-
-  // Searches through this Maze to find the path from the start to finish. General
-  // searching algorithm, which depends on the type of Collection it is given 
-  // as the work-list (Stack vs Queue).
-  SearchResults search(ICollection<CellInfo> workList) {
-    HashMap<Cell, Optional<Cell>> searchPaths = new HashMap<>(); 
-    //Starting cell is an orphan, therefore optional. Children always have a parent
-    Deque<Cell> alreadySeen = new ArrayDeque<Cell>();
-    Cell from = grid.get(0).get(0);
-    Cell to = grid.get(grid.size() - 1).get(grid.get(0).size() - 1);
-    workList.add(new CellInfo(from, Optional.empty()));
-
-    while (!workList.isEmpty()) {
-      CellInfo next = workList.pop();
-      if (next.child().equals(to)) {
-        
-        //find solution path of search paths
-        //
-        searchPaths.put(next.child(), next.parent());
-        alreadySeen.add(to); 
-        return new SearchResults(this.findPath(searchPaths,to), workList.newThis(alreadySeen));
-      }
-      else if (alreadySeen.contains(next.child())) {
-        // do nothing
+    return this.search(false);
+  }
+
+  // Searches through this Maze to find the path from the start to finish, depth first
+  // or breadth first, running a SearchStream to the end and keeping every cell it
+  // visits.
+  SearchResults search(boolean depthFirst) {
+    SearchStream stream = this.searchStream(depthFirst);
+    Deque<Cell> alreadySeen = new ArrayDeque<>();
+    while (stream.hasNext()) {
+      alreadySeen.add(stream.next());
+    }
+    ArrayList<Cell> path = stream.solution();
+
+    if (depthFirst) {
+      return new SearchResults(path, new Stack<Cell>(alreadySeen));
+    }
+    return new SearchResults(path, new Queue<Cell>(alreadySeen));
+  }
+
+  // Starts a search through this Maze, depth first or breadth first, which visits one
+  // more cell each time it is asked for the next
+  SearchStream searchStream(boolean depthFirst) {
+    return new SearchStream(this, depthFirst);
+  }
+
+  // Conducts an A* search of this Maze to find the path from the start to the finish,
+  // always expanding the cell with the least distance from the start plus Manhattan
+  // distance to the exit. The open cells are kept in an IntMinHeap keyed by cell index.
+  // Returns the cells in the order they were expanded, like bfs.
+  SearchResults aStar() {
+    int cells = this.walls.cells();
+    int target = cells - 1;
+    long[] closed = new long[(cells + 63) >>> 6];
+    int[] parent = new int[cells];
+    int[] dist = new int[cells];
+    int[] order = new int[cells];
+    int orderSize = 0;
+    int[] neighbors = new int[4];
+    IntMinHeap open = new IntMinHeap(cells);
+    parent[0] = -1;
+    open.insertOrDecrease(0, this.manhattanToExit(0));
+
+    while (!open.isEmpty()) {
+      int next = open.popMin();
+      closed[next >>> 6] |= 1L << next;
+      order[orderSize] = next;
+      orderSize += 1;
+      if (next == target) {
+        return this.searchResults(false, order, orderSize, parent, target);
       }
-      else {
-        searchPaths.put(next.child(), next.parent());
-        alreadySeen.add(next.child());
-        for (Cell c : next.child().connectingCells(grid)) {
-          
-          workList.add(new CellInfo(c, Optional.of(next.child())));
+
+      int count = this.walls.connectingCells(next, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = neighbors[i];
+        // the heuristic is consistent, so a closed cell never finds a shorter path
+        if ((closed[c >>> 6] & (1L << c)) != 0) {
+          continue;
+        }
+        int candidate = dist[next] + 1;
+        if (!open.contains(c) || candidate < dist[c]) {
+          dist[c] = candidate;
+          parent[c] = next;
+          open.insertOrDecrease(c, candidate + this.manhattanToExit(c));
         }
       }
     }
     throw new RuntimeException("no path exists");
   }
-  
-  // Finds the solution path to this maze given a cameFromKey HashMap
-  ArrayList<Cell> findPath(HashMap<Cell, Optional<Cell>> solution, Cell to) {
-    Cell prev = to;
+
+  // Conducts a Breadth-first search of this Maze from both the start and the finish at
+  // once, a level at a time from whichever side has the smaller frontier, until the two
+  // meet. Each cell has one parent and one distance, pointing back to the side that
+  // reached it, and a bitset per side marks which side that was. The two half paths are
+  // spliced at the shortest edge between them, and the cells come back in the order
+  // either side expanded them.
+  SearchResults bidirectionalBfs() {
+    int cells = this.walls.cells();
+    int target = cells - 1;
+    int[] parent = new int[cells];
+    int[] dist = new int[cells];
+    int[] order = new int[cells];
+    int orderSize = 0;
+    int[] neighbors = new int[4];
+    // side 0 grows from the start and side 1 from the exit
+    long[][] seen = new long[2][(cells + 63) >>> 6];
+    int[][] queues = new int[2][cells];
+    int[] heads = new int[2];
+    int[] tails = {1, 1};
+    queues[1][0] = target;
+    parent[0] = -1;
+    parent[target] = -1;
+    seen[0][0] |= 1L;
+    seen[1][target >>> 6] |= 1L << target;
+    if (target == 0) {
+      order[0] = 0;
+      return this.searchResults(false, order, 1, parent, target);
+    }
+
+    int best = Integer.MAX_VALUE;
+    // the edge where the halves meet, from the start's side to the exit's side
+    int meetStart = -1;
+    int meetExit = -1;
+    while (best == Integer.MAX_VALUE && heads[0] < tails[0] && heads[1] < tails[1]) {
+      int side = 1;
+      if (tails[0] - heads[0] <= tails[1] - heads[1]) {
+        side = 0;
+      }
+      int[] queue = queues[side];
+      long[] mine = seen[side];
+      long[] theirs = seen[1 - side];
+      // a whole level is expanded, so the shortest edge between the sides is found
+      int levelEnd = tails[side];
+      while (heads[side] < levelEnd) {
+        int next = queue[heads[side]];
+        heads[side] += 1;
+        order[orderSize] = next;
+        orderSize += 1;
+
+        int count = this.walls.connectingCells(next, neighbors);
+        for (int i = 0; i < count; i += 1) {
+          int c = neighbors[i];
+          if ((mine[c >>> 6] & (1L << c)) != 0) {
+            continue;
+          }
+          if ((theirs[c >>> 6] & (1L << c)) != 0) {
+            if (dist[next] + 1 + dist[c] < best) {
+              best = dist[next] + 1 + dist[c];
+              meetStart = next;
+              meetExit = c;
+              if (side == 1) {
+                meetStart = c;
+                meetExit = next;
+              }
+            }
+            continue;
+          }
+          mine[c >>> 6] |= 1L << c;
+          parent[c] = next;
+          dist[c] = dist[next] + 1;
+          queue[tails[side]] = c;
+          tails[side] += 1;
+        }
+      }
+    }
+    if (best == Integer.MAX_VALUE) {
+      throw new RuntimeException("no path exists");
+    }
+
+    // the exit's half runs from the exit back to the meeting edge, so it goes in reversed
+    Deque<Cell> exitHalf = new ArrayDeque<>();
+    for (int at = meetExit; at != target; at = parent[at]) {
+      exitHalf.addFirst(this.cellAt(at));
+    }
+    ArrayList<Cell> path = new ArrayList<>(exitHalf);
+    for (int at = meetStart; at >= 0; at = parent[at]) {
+      path.add(this.cellAt(at));
+    }
+    Deque<Cell> alreadySeen = new ArrayDeque<>(orderSize);
+    for (int i = 0; i < orderSize; i += 1) {
+      alreadySeen.add(this.cellAt(order[i]));
+    }
+    return new SearchResults(path, new Queue<Cell>(alreadySeen));
+  }
+
+  // Solves this Maze by filling its dead ends, a band of rows to each task of the given
+  // pool. Returns the cells in the order they were filled, then the path through the
+  // cells left over.
+  SearchResults deadEndFill(ForkJoinPool pool) {
+    DeadEndFiller filler = new DeadEndFiller(this.walls, DeadEndFiller.BAND_ROWS, pool);
+    int filledCount = filler.fill();
+    int target = this.walls.cells() - 1;
+    int[] parent = filler.parentsFrom(0);
+    if (parent[target] == -2) {
+      throw new RuntimeException("no path exists");
+    }
+    return this.searchResults(false, filler.order(), filledCount, parent, target);
+  }
+
+  // Conducts a Breadth-first search of this Maze a level at a time on the given pool,
+  // expanding the cells of each level in parallel. Returns the cells level by level up
+  // to the exit, like bfs.
+  SearchResults parallelBfs(ForkJoinPool pool) {
+    ParallelBfs search = new ParallelBfs(this.walls, pool);
+    int target = this.walls.cells() - 1;
+    int orderSize = search.search(0, target);
+    return this.searchResults(false, search.order(), orderSize, search.parents(), target);
+  }
+
+  // determines the skeleton of this Maze, keeping the start and the exit as nodes, and
+  // building it the first time
+  CorridorGraph corridors() {
+    if (this.corridors == null) {
+      this.corridors = new CorridorGraph(this.walls, new int[] {0, this.walls.cells() - 1});
+    }
+    return this.corridors;
+  }
+
+  // Searches the skeleton of this Maze for the shortest path from the start to the
+  // finish, then unpacks its corridors. Returns the junctions and dead ends in the order
+  // they were settled, with the path from the exit back to the start like bfs.
+  SearchResults corridorSearch() {
+    CorridorGraph graph = this.corridors();
+    int target = graph.nodeOf(this.walls.cells() - 1);
+    int settledCount = graph.search(graph.nodeOf(0), target);
+
+    Deque<Cell> alreadySeen = new ArrayDeque<>(settledCount);
+    for (int i = 0; i < settledCount; i += 1) {
+      alreadySeen.add(this.cellAt(graph.cellOf(graph.settled()[i])));
+    }
+    int[] cells = graph.pathTo(target);
+    ArrayList<Cell> path = new ArrayList<>(cells.length - 1);
+    for (int i = cells.length - 2; i >= 0; i -= 1) {
+      path.add(this.cellAt(cells[i]));
+    }
+    return new SearchResults(path, new Queue<Cell>(alreadySeen));
+  }
+
+  // determines the hierarchical index of this Maze, building it the first time with
+  // tiles of 32 by 32 cells on the common ForkJoinPool
+  HierarchicalPaths tiles() {
+    if (this.tiles == null) {
+      this.tiles = new HierarchicalPaths(this.walls, 32, ForkJoinPool.commonPool());
+    }
+    return this.tiles;
+  }
+
+  // Searches for the path from the start to the finish through the entrances of the
+  // tiles of this Maze, refining only the tiles on the route. Returns the entrances in
+  // the order they were settled, with the path from the exit back to the start like bfs.
+  SearchResults hierarchicalSearch() {
+    HierarchicalPaths index = this.tiles();
+    int[] cells = index.path(0, this.walls.cells() - 1);
+    int[] settled = index.settled();
+
+    Deque<Cell> alreadySeen = new ArrayDeque<>(settled.length);
+    for (int i = 0; i < settled.length; i += 1) {
+      alreadySeen.add(this.cellAt(settled[i]));
+    }
+    ArrayList<Cell> path = new ArrayList<>(cells.length - 1);
+    for (int i = cells.length - 2; i >= 0; i -= 1) {
+      path.add(this.cellAt(cells[i]));
+    }
+    return new SearchResults(path, new Queue<Cell>(alreadySeen));
+  }
+
+  // determines the weight of each passage of this Maze by wall id, from the weights of
+  // its Edges. Passages without an Edge weigh 1.
+  int[] passageWeights() {
+    int[] weights = new int[2 * this.walls.cells()];
+    Arrays.fill(weights, 1);
+    this.board();
+    for (Edge e : this.edges) {
+      weights[e.wallIn(this.walls)] = e.weight();
+    }
+    return weights;
+  }
+
+  // Conducts Dijkstra's algorithm over this Maze to find the cheapest path from the
+  // start to the finish by the weights of its Edges. Once a braided maze has loops this
+  // may be neither the path dfs finds nor the shortest one. The cells waiting to be
+  // settled are kept in a RadixHeap. Returns the cells in the order they were settled,
+  // like bfs.
+  SearchResults dijkstra() {
+    int cells = this.walls.cells();
+    int target = cells - 1;
+    int[] weights = this.passageWeights();
+    int[] dist = new int[cells];
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    int[] parent = new int[cells];
+    long[] settled = new long[(cells + 63) >>> 6];
+    int[] order = new int[cells];
+    int orderSize = 0;
+    int[] neighbors = new int[4];
+    RadixHeap open = new RadixHeap();
+    dist[0] = 0;
+    parent[0] = -1;
+    open.push(0, 0);
+
+    while (!open.isEmpty()) {
+      int next = open.popMin();
+      // a cell pushed again with a cheaper path leaves its older entries behind
+      if ((settled[next >>> 6] & (1L << next)) != 0 || open.lastKey() > dist[next]) {
+        continue;
+      }
+      settled[next >>> 6] |= 1L << next;
+      order[orderSize] = next;
+      orderSize += 1;
+      if (next == target) {
+        return this.searchResults(false, order, orderSize, parent, target);
+      }
+
+      int count = this.walls.connectingCells(next, neighbors);
+      for (int i = 0; i < count; i += 1) {
+        int c = neighbors[i];
+        int candidate = dist[next] + weights[this.walls.wallBetween(next, c)];
+        if (candidate < dist[c]) {
+          dist[c] = candidate;
+          parent[c] = next;
+          open.push(candidate, c);
+        }
+      }
+    }
+    throw new RuntimeException("no path exists");
+  }
+
+  // determines the Manhattan distance from the cell with the given index to the exit
+  int manhattanToExit(int index) {
+    return (this.walls.width() - 1 - this.walls.col(index))
+        + (this.walls.height() - 1 - this.walls.row(index));
+  }
+
+  // Builds the SearchResults of a search, from the indices of the cells it visited in
+  // order and the parent of each, where the path runs back from the parent of the
+  // target to the start
+  SearchResults searchResults(boolean depthFirst, int[] order, int orderSize, int[] parent,
+      int target) {
+    Deque<Cell> alreadySeen = new ArrayDeque<>(orderSize);
+    for (int i = 0; i < orderSize; i += 1) {
+      alreadySeen.add(this.cellAt(order[i]));
+    }
     ArrayList<Cell> path = new ArrayList<>();
-    Optional<Cell> candidate = solution.get(prev);
-    
-    while (candidate.isPresent()) {
-      Cell candidateVal = candidate.get();
-      path.add(candidateVal);
-      prev = candidateVal;
-      candidate = solution.get(prev);
+    for (int at = parent[target]; at >= 0; at = parent[at]) {
+      path.add(this.cellAt(at));
     }
-    
-    return path;
+
+    if (depthFirst) {
+      return new SearchResults(path, new Stack<Cell>(alreadySeen));
+    }
+    return new SearchResults(path, new Queue<Cell>(alreadySeen));
   }
 }
 
@@ -955,6 +5526,12 @@ class MazeSimulation extends World {
   private Maze maze;
   private Posn playerPosn;
   private Iterator<Cell> traversal;
+  // the moves left for the wall follower to make, one each tick
+  private Iterator<String> follower;
+  // the search being run a cell each tick, if the traversal is one
+  private Optional<SearchStream> stream;
+  // the endless maze being played instead of the maze, if the player has switched to it
+  private Optional<ChunkedMaze> endless;
   // These are stored for ease of creating new mazes of the same dimensions
   private final int width; //these fields are final
   private final int height; //because we don't let
@@ -964,24 +5541,59 @@ class MazeSimulation extends World {
   private Iterator<Cell> solIter;
   private boolean solved;
   private int wrongCount;
+  // how many cells the last solver expanded before reaching the exit, 0 if none has run
+  private int expanded;
+  // is the maze shown as a heatmap of each cell's distance from the exit?
+  private boolean heatmap;
+  // the chance that each wall left standing in a new maze is knocked down to make loops,
+  // 0 for perfect mazes
+  private double braid;
+  // draws the seed of every maze this simulation makes, so a simulation started from
+  // the same seed plays through the same sequence of mazes
+  private final SplittableRandom seeds;
+  // the algorithm new mazes are generated with, which the user can switch between
+  private IMazeGenerator generator;
 
   // Constructor which makes a new random maze
   MazeSimulation(Posn playerPosn, int width, int height, int scale, Optional<Boolean> bias) {
+    this(playerPosn, width, height, scale, bias, new SplittableRandom().nextLong());
+  }
+
+  // Constructor which makes the mazes of the given seed
+  MazeSimulation(Posn playerPosn, int width, int height, int scale, Optional<Boolean> bias,
+      long seed) {
+    this(playerPosn, width, height, scale, bias, seed, new KruskalGenerator());
+  }
+
+  // Constructor which makes the mazes of the given seed with the given generator
+  MazeSimulation(Posn playerPosn, int width, int height, int scale, Optional<Boolean> bias,
+      long seed, IMazeGenerator generator) {
+    this.seeds = new SplittableRandom(seed);
+    this.generator = generator;
     this.playerPosn = playerPosn;
-    this.maze = new Maze(width / scale, height / scale, scale, bias);
+    this.maze = new Maze(width / scale, height / scale, scale, bias, seeds.nextLong(),
+        generator);
     this.traversal = Collections.emptyIterator();
+    this.follower = Collections.emptyIterator();
+    this.stream = Optional.empty();
+    this.endless = Optional.empty();
     this.width = width;
     this.height = height;
     this.scale = scale;
     this.bias = bias;
-    this.solution = this.maze.dfs().determineSolution();
+    this.solution = this.maze.solution();
     this.solIter = this.solution.iterator();
     this.solved = false;
     this.wrongCount = 0;
+    this.expanded = 0;
   }
 
   // Renders this maze each tick
   public void onTick() {
+    if (this.endless.isPresent()) {
+      // an endless maze has no exit to reach and nothing to animate
+      return;
+    }
     if (this.maze.finishedMaze(this.playerPosn)) {
       solved = true;
       
@@ -990,9 +5602,19 @@ class MazeSimulation extends World {
         currCell.colorSelf(Color.BLUE); 
       }
     } 
+    else if (follower.hasNext()) {
+      // the follower plays its moves as if the player had pressed them
+      this.onKeyEvent(follower.next());
+    }
     else if (traversal.hasNext()) {
       Cell currCell = traversal.next();
-      if (!solution.contains(currCell)) {
+      if (this.stream.isPresent()) {
+        this.expanded = this.stream.get().expanded();
+        if (!traversal.hasNext()) {
+          this.endStream();
+        }
+      }
+      else if (!solution.contains(currCell)) {
         wrongCount += 1;
       }
       currCell.colorSelf(Color.cyan);
@@ -1005,28 +5627,72 @@ class MazeSimulation extends World {
     }
   }
 
-  // Conducts a Depth-first Search or Breadth-first Search dependent on if the
-  // user presses "D" or "B", respectively. Allows the player to move up, down,
+  // Conducts a Depth-first Search, Breadth-first Search, A* Search or two-sided
+  // Breadth-first Search dependent on if the user presses "D", "B", "A" or "M",
+  // respectively. Allows the player to move up, down,
   // left and right to progress through the maze with WASD controls. User can press
   // "n" key for a new maze to be created. User can press "N" to make a new maze
   // without resetting their progress.
+  // User can press "1" to "6" to make a new maze with Kruskal's, Prim's, the recursive
+  // backtracker, Wilson's, Eller's or tiled Kruskal's generator, respectively, which
+  // later new mazes keep using.
+  // User can press "o" to switch to an endless maze around the player, which only WASD
+  // moves through, and "o" again to go back to a new maze of the usual size.
+  // User can press "i" to color the next step toward the exit as a hint, and "x" to
+  // switch between the maze and a heatmap of each cell's distance from the exit.
+  // User can press "J" to conduct Dijkstra's algorithm by the weights of the passages,
+  // and "l" to switch braiding on or off and make a new maze to show it.
+  // User can press "f" to walk the player to the exit with a hand on the wall.
+  // User can press "E" to fill in dead ends until only the way to the exit is left.
+  // User can press "S" to conduct a Breadth-first Search one cell per tick.
   public void onKeyEvent(String key) {
+    if (this.endless.isPresent()) {
+      this.onEndlessKey(key);
+      return;
+    }
     if (!traversal.hasNext()) {
       if (key.equals("D")) {
         // The Iterator<Cell> returned by maze.dfs() represents the target path
         // from the start to the finish.
-        SearchResults dfs = this.maze.dfs();
-        this.traversal = dfs.determineSearch();
-        this.solution = dfs.determineSolution();
-        solved = true;
+        this.showSearch(this.maze.dfs());
       }
       if (key.equals("B")) {
         // The Iterator<Cell> returned by maze.bfs() represents the target path
         // from the start to the finish.
-        SearchResults bfs = this.maze.bfs();
-        this.traversal = bfs.determineSearch();
-        this.solution = bfs.determineSolution();    
-        solved = true;
+        this.showSearch(this.maze.bfs());
+      }
+      if (key.equals("A")) {
+        // A* expands the cells closest to the exit (by Manhattan distance) first
+        this.showSearch(this.maze.aStar());
+      }
+      if (key.equals("M")) {
+        // searches breadth first from the start and the exit until they meet
+        this.showSearch(this.maze.bidirectionalBfs());
+      }
+      if (key.equals("E")) {
+        // fills in the dead ends until only the way to the exit is left
+        this.showSearch(this.maze.deadEndFill(ForkJoinPool.commonPool()));
+      }
+      if (key.equals("S")) {
+        // searches one cell further each tick, so there is nothing to wait for
+        this.stream = Optional.of(this.maze.searchStream(false));
+        this.traversal = this.stream.get();
+        this.expanded = 0;
+        this.solved = true;
+      }
+      if (key.equals("J")) {
+        // finds the cheapest path, which stays the shortest in a braided maze
+        this.showSearch(this.maze.dijkstra());
+      }
+
+      if (key.equals("f") && !solved) {
+        // walks the player to the exit with a hand on the wall
+        this.follower = new WallFollower(this.maze, this.playerPosn,
+            new Posn(width / scale - 1, height / scale - 1));
+      }
+      if (key.equals("i") && !solved) {
+        // shows the player which way to step next
+        this.maze.colorCell(this.maze.hint(this.playerPosn), Color.BLUE);
       }
 
       if (key.equals("w")) {
@@ -1054,10 +5720,32 @@ class MazeSimulation extends World {
       this.playerPosn = new Posn(0,0);
       this.maze.resetGridColors();
       this.traversal = Collections.emptyIterator();
-      this.solution = this.maze.dfs().determineSolution();
+      this.follower = Collections.emptyIterator();
+      this.stream = Optional.empty();
+      this.solution = this.maze.solution();
       this.solIter = solution.iterator();
       this.solved = false;
       this.wrongCount = 0;
+      this.expanded = 0;
+    }
+    if (key.equals("x")) {
+      this.heatmap = !this.heatmap;
+    }
+    if (key.equals("o")) {
+      // starts an endless maze at the origin, generated a chunk at a time around the
+      // player
+      this.endless = Optional.of(new ChunkedMaze(16, 64, this.bias, seeds.nextLong()));
+      this.playerPosn = new Posn(0, 0);
+    }
+    if (key.equals("l")) {
+      // switches braiding on or off, then makes a new maze to show it
+      if (this.braid > 0) {
+        this.braid = 0;
+      }
+      else {
+        this.braid = 0.1;
+      }
+      makeNewMaze(this.bias);
     }
     if (key.equals("n")) {
       makeNewMaze(Optional.empty());
@@ -1068,22 +5756,99 @@ class MazeSimulation extends World {
     if (key.equals("h")) {
       makeNewMaze(Optional.of(true));
     }
+    if (key.equals("1")) {
+      makeNewMaze(this.bias, new KruskalGenerator());
+    }
+    if (key.equals("2")) {
+      makeNewMaze(this.bias, new PrimGenerator());
+    }
+    if (key.equals("3")) {
+      makeNewMaze(this.bias, new BacktrackerGenerator());
+    }
+    if (key.equals("4")) {
+      makeNewMaze(this.bias, new WilsonGenerator());
+    }
+    if (key.equals("5")) {
+      makeNewMaze(this.bias, new EllerMazeGenerator());
+    }
+    if (key.equals("6")) {
+      makeNewMaze(this.bias, new TiledKruskal());
+    }
     
   }
   
+  // EFFECT: moves the player through the endless maze, leaving a trail behind them, or
+  // goes back to a new maze of the usual size
+  void onEndlessKey(String key) {
+    ChunkedMaze world = this.endless.get();
+    Posn target = this.playerPosn;
+    if (key.equals("w")) {
+      target = new Posn(playerPosn.x, playerPosn.y - 1);
+    }
+    if (key.equals("s")) {
+      target = new Posn(playerPosn.x, playerPosn.y + 1);
+    }
+    if (key.equals("a")) {
+      target = new Posn(playerPosn.x - 1, playerPosn.y);
+    }
+    if (key.equals("d")) {
+      target = new Posn(playerPosn.x + 1, playerPosn.y);
+    }
+    if (world.playerCanMove(this.playerPosn, target)) {
+      this.playerPosn = target;
+      world.colorCell(target, Color.cyan);
+    }
+    if (key.equals("o")) {
+      this.endless = Optional.empty();
+      this.makeNewMaze(this.bias);
+    }
+  }
+
   // EFFECT: makes a new maze by randomly generating a new one and resetting
   // all of the other fields of this MazeSimulation
   void makeNewMaze(Optional<Boolean> b) {
+    IMazeGenerator gen = this.generator;
+    if (this.braid > 0) {
+      gen = new BraidGenerator(gen, this.braid);
+    }
     this.playerPosn = new Posn(0,0);
-    this.maze = new Maze(width / scale, height / scale, scale, b);
+    this.maze = new Maze(width / scale, height / scale, scale, b, seeds.nextLong(), gen);
     this.traversal = Collections.emptyIterator();
-    this.solution = this.maze.dfs().determineSolution();
+    this.follower = Collections.emptyIterator();
+    this.stream = Optional.empty();
+    this.solution = this.maze.solution();
     this.solIter = solution.iterator();
     this.solved = false;
     this.wrongCount = 0;
+    this.expanded = 0;
   }
   
 
+  // EFFECT: shows the path the search being run each tick found, now that it has
+  // reached the exit, and counts the cells it visited off that path as wrong
+  void endStream() {
+    SearchStream finished = this.stream.get();
+    this.solution = finished.solution();
+    this.solIter = this.solution.iterator();
+    this.wrongCount += finished.expanded() - this.solution.size();
+    this.stream = Optional.empty();
+  }
+
+  // EFFECT: animates the cells the given search visited, then its solution
+  void showSearch(SearchResults results) {
+    this.traversal = results.determineSearch();
+    this.solution = results.determineSolution();
+    this.expanded = results.expanded();
+    this.solved = true;
+  }
+
+  // EFFECT: switches this MazeSimulation over to the given generator, then makes a new
+  // maze with it as makeNewMaze does
+  void makeNewMaze(Optional<Boolean> b, IMazeGenerator generator) {
+    this.generator = generator;
+    this.makeNewMaze(b);
+  }
+
   // Moves the player of this MazeSimulation dependent on the given positions and
   // colors the cell that the player moves to, if they can move to it.
   void movePlayer(Posn targPos) {
@@ -1091,7 +5856,7 @@ class MazeSimulation extends World {
       this.playerPosn = targPos;
       this.maze.colorCell(playerPosn, Color.cyan);
       
-      if (!solution.contains(maze.cellAt(playerPosn))) {
+      if (!maze.onSolution(playerPosn)) {
         wrongCount += 1;
       }
     }
@@ -1102,10 +5867,34 @@ class MazeSimulation extends World {
 
   // Makes the rendered image of the Maze contained within this MazeSimulation
   public WorldImage makeImage() {
-    return new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.TOP,
+    if (this.endless.isPresent()) {
+      // the window follows the player, who stays in the middle of it
+      int cols = width / scale;
+      int rows = height / scale;
+      return new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.TOP,
+          new TextImage("Position: " + playerPosn.x + ", " + playerPosn.y, 30, Color.white),
+          50, -20,
+          this.endless.get().renderWindow(
+              new Posn(playerPosn.x - cols / 2, playerPosn.y - rows / 2), cols, rows, scale));
+    }
+    WorldImage maze;
+    if (this.heatmap) {
+      maze = this.maze.renderHeatmap();
+    }
+    else {
+      maze = this.maze.renderMaze();
+    }
+    WorldImage image = new OverlayOffsetAlign(AlignModeX.RIGHT, AlignModeY.TOP,
         new TextImage("Wrong moves: " + wrongCount, 30, Color.white),
         50, -20,
-        this.maze.renderMaze());
+        maze);
+    if (this.expanded > 0) {
+      image = new OverlayOffsetAlign(AlignModeX.LEFT, AlignModeY.TOP,
+          new TextImage("Expanded: " + this.expanded, 30, Color.white),
+          -50, -20,
+          image);
+    }
+    return image;
   }
 
   // Makes the scene of this MazeSimulation
@@ -1120,98 +5909,236 @@ class MazeSimulation extends World {
 //Holds utilities that may be needed for
 //given that this is supposed to be used by all classes, none of it's methods will be private
 class Utils {
-
-  // Creates a hashmap where every value in the given ArrayList points towards
-  // itself
-  <T> HashMap<T, T> selfHashMap(ArrayList<T> arrList) {
-    HashMap<T, T> hash = new HashMap<>(arrList.size());
-    for (T t : arrList) {
-      hash.put(t, t);
+  // the number of keys at which radixsort starts spreading each pass across the
+  // common ForkJoinPool, below this the forking costs more than it saves
+  static final int PARALLEL_RADIX_THRESHOLD = 1 << 20;
+
+  // EFFECT: Renders the walls of the given sides (those which are not open) of the cell
+  // whose square starts at the given pixel, adding an extra "layer" to each wall if the
+  // cell size is large enough
+  void drawWalls(ComputedPixelImage cpi, int startX, int startY, int scale,
+      boolean openUp, boolean openDown, boolean openLeft, boolean openRight) {
+    boolean thick = scale > 2;
+
+    for (int mod = 0; mod < scale; mod += 1) {
+      if (!openUp) {
+        cpi.setColorAt(startX + mod, startY, Color.black);
+        if (thick) {
+          cpi.setColorAt(startX + mod, startY + 1, Color.black);
+        }
+      }
+      if (!openDown) {
+        cpi.setColorAt(startX + mod, startY + scale - 1, Color.black);
+        if (thick) {
+          cpi.setColorAt(startX + mod, startY + scale - 2, Color.black);
+        }
+      }
+      if (!openLeft) {
+        cpi.setColorAt(startX, startY + mod, Color.black);
+        if (thick) {
+          cpi.setColorAt(startX + 1, startY + mod, Color.black);
+        }
+      }
+      if (!openRight) {
+        cpi.setColorAt(startX + scale - 1, startY + mod, Color.black);
+        if (thick) {
+          cpi.setColorAt(startX + scale - 2, startY + mod, Color.black);
+        }
+      }
     }
-
-    return hash;
   }
 
-  // credit : merge sort implemented in same fashion as the notes
-  // EFFECT: Sorts the provided list according to the given comparator
-  <T> void mergesort(ArrayList<T> arr, Comparator<T> comp) {
-
-    ArrayList<T> temp = new ArrayList<T>(arr.size());
-    for (int i = 0; i < arr.size(); i = i + 1) {
-      temp.add(arr.get(i));
-    }
+  // Packs the given weight and edge id into a single key, which orders first by weight
+  // and then by edge id. Both are expected to be non-negative.
+  long packEdgeKey(int weight, int edgeId) {
+    return ((long) weight << 32) | (edgeId & 0xFFFFFFFFL);
+  }
 
-    mergesort(arr, temp, comp, 0, arr.size());
+  // determines the weight packed into the given edge key
+  int keyWeight(long key) {
+    return (int) (key >>> 32);
   }
 
-  // overload for merge sort, gaining access to a low index, high index, and a
-  // temporary ArrayList
-  <T> void mergesort(ArrayList<T> source, ArrayList<T> temp, Comparator<T> comp, int loIdx,
-      int hiIdx) {
+  // determines the edge id packed into the given edge key
+  int keyId(long key) {
+    return (int) key;
+  }
 
-    if (hiIdx - loIdx <= 1) {
-      // nothing needs to be done here, all items in the list has been sorted
-      return;
+  // EFFECT: Sorts the given edges by weight, keeping edges with the same weight in the
+  // order they were given. Each edge is packed into a primitive (weight, index) key so
+  // sorting neither compares nor allocates per edge.
+  void sortByWeight(ArrayList<Edge> edges) {
+    int size = edges.size();
+    long[] keys = new long[size];
+    Edge[] unsorted = new Edge[size];
+    for (int i = 0; i < size; i += 1) {
+      unsorted[i] = edges.get(i);
+      keys[i] = packEdgeKey(unsorted[i].weight(), i);
     }
-    int midIdx = (loIdx + hiIdx) / 2;
 
-    mergesort(source, temp, comp, loIdx, midIdx);
-    mergesort(source, temp, comp, midIdx, hiIdx);
+    // the ids were packed in ascending order, so only the weight bits need sorting
+    radixsort(keys, new long[size], 32);
 
-    merge(source, temp, comp, loIdx, midIdx, hiIdx);
+    for (int i = 0; i < size; i += 1) {
+      edges.set(i, unsorted[keyId(keys[i])]);
+    }
   }
 
-  // helper for mergeSort
-  <T> void merge(ArrayList<T> source, ArrayList<T> temp, Comparator<T> comp, int loIdx, int midIdx,
-      int hiIdx) {
+  // EFFECT: Sorts the given non-negative keys in ascending order, using scratch (which
+  // must be at least as long as keys) as the buffer between passes. This is an LSD radix
+  // sort over the bits from fromBit upwards, one byte per pass, so keys which are already
+  // in order on their bits below fromBit stay in that order. Passes over bytes that are
+  // the same in every key are skipped entirely.
+  void radixsort(long[] keys, long[] scratch, int fromBit) {
+    long usedBits = 0;
+    for (long k : keys) {
+      usedBits |= k;
+    }
 
-    int curLo = loIdx;
-    int curHi = midIdx;
-    int curCopy = loIdx;
+    boolean parallel = keys.length >= PARALLEL_RADIX_THRESHOLD
+        && ForkJoinPool.getCommonPoolParallelism() > 1;
+    int[] counts = new int[256];
+    long[] src = keys;
+    long[] dst = scratch;
 
-    while (curLo < midIdx && curHi < hiIdx) {
-      if (comp.compare(source.get(curLo), source.get(curHi)) <= 0) {
-        temp.set(curCopy, source.get(curLo));
-        curLo = curLo + 1;
+    for (int shift = fromBit; shift < 64 && (usedBits >>> shift) != 0; shift += 8) {
+      boolean moved;
+      if (parallel) {
+        moved = parallelRadixPass(src, dst, keys.length, shift);
       }
       else {
-        temp.set(curCopy, source.get(curHi));
-        curHi = curHi + 1;
+        moved = radixPass(src, dst, keys.length, shift, counts);
+      }
+
+      if (moved) {
+        long[] temp = src;
+        src = dst;
+        dst = temp;
       }
-      curCopy = curCopy + 1;
     }
 
-    while (curLo < midIdx) {
-      temp.set(curCopy, source.get(curLo));
-      curLo = curLo + 1;
-      curCopy = curCopy + 1;
+    if (src != keys) {
+      System.arraycopy(src, 0, keys, 0, keys.length);
+    }
+  }
+
+  // EFFECT: Stably distributes the first size keys of src into dst by the byte at the
+  // given shift. Returns false, leaving dst untouched, if every key has the same byte.
+  boolean radixPass(long[] src, long[] dst, int size, int shift, int[] counts) {
+    Arrays.fill(counts, 0);
+    for (int i = 0; i < size; i += 1) {
+      counts[(int) (src[i] >>> shift) & 0xFF] += 1;
+    }
+    if (size == 0 || counts[(int) (src[0] >>> shift) & 0xFF] == size) {
+      return false;
+    }
+
+    int offset = 0;
+    for (int digit = 0; digit < 256; digit += 1) {
+      int count = counts[digit];
+      counts[digit] = offset;
+      offset += count;
+    }
+
+    for (int i = 0; i < size; i += 1) {
+      long key = src[i];
+      int digit = (int) (key >>> shift) & 0xFF;
+      dst[counts[digit]] = key;
+      counts[digit] += 1;
+    }
+    return true;
+  }
+
+  // EFFECT: Performs the same pass as radixPass, but splits the keys into contiguous
+  // chunks that are counted and then scattered in parallel. Each chunk writes to its own
+  // slice of every bucket, so the pass is still stable.
+  boolean parallelRadixPass(long[] src, long[] dst, int size, int shift) {
+    int chunks = ForkJoinPool.getCommonPoolParallelism() * 4;
+    ArrayList<RadixChunk> tasks = new ArrayList<>(chunks);
+    for (int c = 0; c < chunks; c += 1) {
+      tasks.add(new RadixChunk(src, dst, (int) ((long) size * c / chunks),
+          (int) ((long) size * (c + 1) / chunks), shift));
+    }
+    ForkJoinTask.invokeAll(tasks);
+
+    int firstDigit = (int) (src[0] >>> shift) & 0xFF;
+    int sameAsFirst = 0;
+    for (RadixChunk task : tasks) {
+      sameAsFirst += task.digitCount(firstDigit);
+    }
+    if (sameAsFirst == size) {
+      return false;
     }
 
-    while (curHi < hiIdx) {
-      temp.set(curCopy, source.get(curHi));
-      curHi = curHi + 1;
-      curCopy = curCopy + 1;
+    // Turn the per-chunk counts into per-chunk starting offsets, ordered by digit and
+    // then by chunk
+    int offset = 0;
+    for (int digit = 0; digit < 256; digit += 1) {
+      for (RadixChunk task : tasks) {
+        offset = task.claimBucket(digit, offset);
+      }
     }
 
-    for (int i = loIdx; i < hiIdx; i = i + 1) {
-      source.set(i, temp.get(i));
+    for (RadixChunk task : tasks) {
+      task.reinitialize();
     }
+    ForkJoinTask.invokeAll(tasks);
+    return true;
   }
 }
 
-// Compares two edge's weights to determine which given Edge has a greater weight than
-// the other Edge.
-class EdgeCompare implements Comparator<Edge> {
+// Counts, and then scatters, one contiguous chunk of keys for a parallel radix sort pass.
+// The first time this task runs it counts the digits in its chunk, after which the caller
+// claims its slice of every bucket, and the second time it runs it scatters its keys.
+class RadixChunk extends RecursiveAction {
+  private final long[] src;
+  private final long[] dst;
+  private final int lo;
+  private final int hi;
+  private final int shift;
+  // digit counts of this chunk until the buckets are claimed, then next write positions
+  private final int[] buckets;
+  private boolean counted;
+
+  RadixChunk(long[] src, long[] dst, int lo, int hi, int shift) {
+    this.src = src;
+    this.dst = dst;
+    this.lo = lo;
+    this.hi = hi;
+    this.shift = shift;
+    this.buckets = new int[256];
+    this.counted = false;
+  }
 
-  public int compare(Edge edge1, Edge edge2) {
-    Edge smallestEdge = edge1.minEdge(new ArrayList<>(Arrays.asList(edge2)));
-    int comparison = 0;
-    if (edge1 == smallestEdge) {
-      comparison = -1;
+  // EFFECT: counts the digits of this chunk the first time, scatters it the second time
+  protected void compute() {
+    if (!this.counted) {
+      for (int i = lo; i < hi; i += 1) {
+        this.buckets[(int) (src[i] >>> shift) & 0xFF] += 1;
+      }
+      this.counted = true;
     }
-    else if (edge2 == smallestEdge) {
-      comparison = 1;
+    else {
+      for (int i = lo; i < hi; i += 1) {
+        long key = src[i];
+        int digit = (int) (key >>> shift) & 0xFF;
+        dst[this.buckets[digit]] = key;
+        this.buckets[digit] += 1;
+      }
     }
-    return comparison;
+  }
+
+  // EFFECT: claims the slice of the given digit's bucket that starts at the given
+  // offset for this chunk. Returns the offset just past the claimed slice.
+  int claimBucket(int digit, int offset) {
+    int count = this.buckets[digit];
+    this.buckets[digit] = offset;
+    return offset + count;
+  }
+
+  // determines how many keys of this chunk have the given digit, before the buckets
+  // are claimed
+  int digitCount(int digit) {
+    return this.buckets[digit];
   }
 }
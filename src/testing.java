@@ -529,7 +529,1052 @@ class ExampleMaze {
   }
 
 
-  void testConnectNode(Tester t) {
+  void testCompactMaze(Tester t) {
+    initAll2();
+    CompactMaze walls = maze2.walls();
+
+    // the packed walls agree with the links of the Cells they were built from
+    t.checkExpect(walls.width(), 4);
+    t.checkExpect(walls.height(), 4);
+    t.checkExpect(walls.openRight(0), true); // a - b
+    t.checkExpect(walls.openDown(0), true); // a - e
+    t.checkExpect(walls.openRight(4), true); // e - f
+    t.checkExpect(walls.openRight(5), false); // f | g
+    t.checkExpect(walls.openLeft(1), true);
+    t.checkExpect(walls.openUp(4), true);
+    t.checkExpect(walls.openUp(0), false);
+    t.checkExpect(walls.openRight(3), false); // never links across rows
+    t.checkExpect(walls.passages(), 15);
+
+    t.checkExpect(maze2.playerCanMove(new Posn(0, 0), new Posn(1, 0)), true);
+    t.checkExpect(maze2.playerCanMove(new Posn(1, 0), new Posn(1, 1)), false);
+    t.checkExpect(maze2.playerCanMove(new Posn(0, 0), new Posn(-1, 0)), false);
+
+    // neighbors are found in the order left, right, up, down
+    int[] neighbors = new int[4];
+    t.checkExpect(walls.connectingCells(13, neighbors), 3); // n links to m, o and j
+    t.checkExpect(neighbors[0], 12);
+    t.checkExpect(neighbors[1], 14);
+    t.checkExpect(neighbors[2], 9);
+    t.checkExpect(Cf2.connectingCells(maze2Grid(), walls),
+        new ArrayList<Cell>(List.of(Ce2, Cj2)));
+
+    t.checkExceptionType(IllegalArgumentException.class, walls, "openPassage", 0, 5);
+    t.checkExceptionType(IllegalArgumentException.class, walls, "openPassage", 3, 4);
+
+    // in a maze one cell wide, the cell below is the next one
+    CompactMaze column = new CompactMaze(1, 3);
+    new KruskalGenerator().generate(column, Optional.empty(), 1);
+    t.checkExpect(column.passages(), 2);
+    t.checkExpect(column.linked(0, 1), true);
+    t.checkExpect(column.wallBetween(1, 2), 3);
+    t.checkExpect(column.playerCanMove(new Posn(0, 0), new Posn(0, 1)), true);
+    t.checkExpect(column.playerCanMove(new Posn(0, 2), new Posn(0, 1)), true);
+    t.checkExpect(column.playerCanMove(new Posn(0, 0), new Posn(1, 0)), false);
+  }
+
+  // the grid of maze2, as given to its constructor
+  ArrayList<ArrayList<Cell>> maze2Grid() {
+    ArrayList<ArrayList<Cell>> grid2 = new ArrayList<ArrayList<Cell>>();
+    grid2.add(new ArrayList<Cell>(List.of(Ca2, Cb2, Cc2, Cd2)));
+    grid2.add(new ArrayList<Cell>(List.of(Ce2, Cf2, Cg2, Ch2)));
+    grid2.add(new ArrayList<Cell>(List.of(Ci2, Cj2, Ck2, Cl2)));
+    grid2.add(new ArrayList<Cell>(List.of(Cm2, Cn2, Co2, Cp2)));
+    return grid2;
+  }
+
+  void testCompactKruskals(Tester t) {
+    CompactMaze walls = new CompactMaze(300, 200);
+    t.checkExpect(walls.passages(), 0);
+    walls.kruskals(new EdgeWeights(300, 200, Optional.empty(), 7));
+
+    // a perfect maze over n cells knocks down exactly n - 1 walls and reaches every cell
+    t.checkExpect(walls.passages(), 300 * 200 - 1);
+    t.checkExpect(walls.isPerfect(), true);
+
+    // generating and searching keeps the arrays to a nominal two bits per cell
+    t.checkInexact(walls.nominalBitsPerCell(), 2.0, 0.01);
+
+    // coloring allocates the palette, but the start and exit keep their colors
+    walls.colorCell(new Posn(5, 5), Color.cyan);
+    walls.colorCell(new Posn(0, 0), Color.cyan);
+    t.checkExpect(walls.colorOf(walls.index(5, 5)), Color.cyan);
+    t.checkExpect(walls.colorOf(0), Color.LIGHT_GRAY);
+    t.checkInexact(walls.nominalBitsPerCell(), 10.0, 0.01);
+    t.checkExceptionType(IllegalArgumentException.class, walls, "colorCell",
+        new Posn(1, 1), Color.ORANGE);
+    walls.resetGridColors();
+    t.checkExpect(walls.colorOf(walls.index(5, 5)), Color.LIGHT_GRAY);
+
+    ComputedPixelImage cpi = new CompactMaze(3, 2).renderMaze(6);
+    t.checkExpect(cpi.getColorAt(1, 1), Color.black); // corner of a wall
+    t.checkExpect(cpi.getColorAt(3, 3), Color.green); // inside the start
+    t.checkExpect(cpi.getColorAt(15, 9), Color.red); // inside the exit
+    t.checkExpect(cpi.getColorAt(9, 3), Color.LIGHT_GRAY);
+  }
+
+  void testEdgeWeights(Tester t) {
+    EdgeWeights oneThread = new EdgeWeights(400, 300, Optional.of(true), 11,
+        new ForkJoinPool(1));
+    EdgeWeights fourThreads = new EdgeWeights(400, 300, Optional.of(true), 11,
+        new ForkJoinPool(4));
+
+    // the same seed draws the same weights however many threads draw them
+    boolean same = true;
+    for (int edgeId = 0; edgeId < 2 * 400 * 300; edgeId += 1) {
+      same = same && oneThread.weight(edgeId) == fourThreads.weight(edgeId);
+    }
+    t.checkExpect(same, true);
+
+    // walls on the outside of the maze have no weight
+    t.checkExpect(oneThread.weight(2 * 399), 0);
+    t.checkExpect(oneThread.weight(2 * (299 * 400) + 1), 0);
+
+    // under a horizontal bias walls between rows are five times heavier
+    t.checkRange(oneThread.weight(0), 201, 402);
+    t.checkRange(oneThread.weight(1), 1005, 2010);
+
+    EdgeWeights vertical = new EdgeWeights(4, 4, Optional.of(false), 11);
+    t.checkRange(vertical.weight(0), 1005, 2010);
+    t.checkRange(vertical.weight(1), 201, 402);
+  }
+
+  void testSeededMaze(Tester t) {
+    Maze first = new Maze(40, 30, 10, Optional.empty(), 1234);
+    Maze second = new Maze(40, 30, 10, Optional.empty(), 1234);
+    Maze other = new Maze(40, 30, 10, Optional.empty(), 4321);
+
+    // the same seed always makes the same maze
+    t.checkExpect(first.walls().sameWalls(second.walls()), true);
+    t.checkExpect(first.walls().sameWalls(other.walls()), false);
+    t.checkExpect(first.walls().passages(), 40 * 30 - 1);
+
+    // which is the maze the packed Kruskal's makes from the weights of that seed
+    CompactMaze compact = new CompactMaze(40, 30);
+    compact.kruskals(new EdgeWeights(40, 30, Optional.empty(), 1234));
+    t.checkExpect(compact.sameWalls(first.walls()), true);
+
+    // the Cells are linked to match the walls once they are asked for, and only once
+    Cell start = first.cellAt(new Posn(0, 0));
+    t.checkExpect(new CompactMaze(first.board()).sameWalls(first.walls()), true);
+    t.checkExpect(first.cellAt(0) == start, true);
+  }
+
+  void testConcurrentUnionFind(Tester t) {
+    ConcurrentUnionFind uf = new ConcurrentUnionFind(5);
+    t.checkExpect(uf.components(), 5);
+    t.checkExpect(uf.union(3, 4), true);
+    t.checkExpect(uf.union(4, 1), true);
+    t.checkExpect(uf.union(1, 3), false);
+    t.checkExpect(uf.components(), 3);
+    // masters are always the smallest index of their blob
+    t.checkExpect(uf.find(4), 1);
+    t.checkExpect(uf.sameBlob(3, 1), true);
+    t.checkExpect(uf.sameBlob(0, 1), false);
+  }
+
+  void testExternalKruskal(Tester t) {
+    File dir = new File(System.getProperty("java.io.tmpdir"));
+    // the smallest budget gives a run per weight block, so 240000 walls take four runs
+    ExternalKruskal external = new ExternalKruskal(dir, 1);
+    ArrayList<File> runs = external.writeRuns(400, 300, Optional.empty(), 3);
+    t.checkExpect(runs.size(), 4);
+
+    // which is more than it can give a buffer each, so they are merged two at a time into
+    // two runs of every key in order, and the four are deleted
+    t.checkExpect(external.fanIn(), 2);
+    ArrayList<File> reduced = external.reduceRuns(runs);
+    t.checkExpect(reduced.size(), 2);
+    t.checkExpect(runs.get(0).exists(), false);
+    t.checkExpect(reduced.get(0).length() + reduced.get(1).length(),
+        2 * 4 + 8L * (2 * 400 * 300 - 400 - 300));
+    for (File run : reduced) {
+      run.delete();
+    }
+    // a budget of 64 KiB merges fifteen runs at once, each through 4 KiB
+    t.checkExpect(new ExternalKruskal(dir, 1 << 16).fanIn(), 15);
+    t.checkExpect(new ExternalKruskal(dir, 1 << 16).bufferSize(16), 1 << 12);
+
+    File output = new File(dir, "external-kruskal-test.walls");
+    t.checkExpect(external.generate(400, 300, Optional.of(true), 3, output), 400L * 300 - 1);
+    CompactMaze loaded = external.load(output, 400, 300);
+    output.delete();
+
+    // the same seed knocks down the same walls as when everything fits in memory
+    CompactMaze inMemory = new CompactMaze(400, 300);
+    inMemory.kruskals(new EdgeWeights(400, 300, Optional.of(true), 3));
+    t.checkExpect(loaded.isPerfect(), true);
+    t.checkExpect(loaded.sameWalls(inMemory), true);
+
+    // a budget big enough for one run gives the same maze again
+    new ExternalKruskal(dir, 1L << 30).generate(400, 300, Optional.of(true), 3, output);
+    t.checkExpect(external.load(output, 400, 300).sameWalls(inMemory), true);
+    output.delete();
+
+    t.checkExceptionType(IllegalArgumentException.class, external, "generate",
+        0, 5, Optional.empty(), 3L, output);
+  }
+
+  void testIntSearch(Tester t) {
+    Maze big = new Maze(300, 300, 1, Optional.empty(), 9, new BacktrackerGenerator());
+    SearchResults dfs = big.dfs();
+    SearchResults bfs = big.bfs();
+
+    // a perfect maze has only one path, which both searches find from the exit backwards
+    t.checkExpect(dfs.determineSolution(), bfs.determineSolution());
+    ArrayList<Cell> path = bfs.determineSolution();
+    t.checkExpect(path.get(path.size() - 1), big.cellAt(new Posn(0, 0)));
+
+    // every cell is visited once, and both searches stop at the exit
+    int visited = 0;
+    Cell last = null;
+    for (Iterator<Cell> it = bfs.determineSearch(); it.hasNext(); ) {
+      last = it.next();
+      visited += 1;
+    }
+    t.checkExpect(last, big.cellAt(new Posn(299, 299)));
+    t.checkRange(visited, path.size() + 1, 300 * 300 + 1);
+
+    // a one cell maze is solved where it starts
+    Maze single = new Maze(1, 1, 1, Optional.empty(), 9, new KruskalGenerator());
+    t.checkExpect(single.bfs().determineSolution().size(), 0);
+    t.checkExpect(single.dfs().determineSearch().next(), single.cellAt(0));
+  }
+
+  void testAStar(Tester t) {
+    this.initAll2();
+    SearchResults aStar = maze2.aStar();
+    t.checkExpect(aStar.determineSolution(), maze2.bfs().determineSolution());
+    // the cells whose f is beyond the length of the path are never expanded
+    t.checkExpect(aStar.expanded(), 12);
+    t.checkExpect(maze2.bfs().expanded(), 16);
+    t.checkExpect(maze2.dfs().expanded(), 7);
+
+    Maze big = new Maze(200, 200, 1, Optional.empty(), 4, new KruskalGenerator());
+    SearchResults bigAStar = big.aStar();
+    SearchResults bigBfs = big.bfs();
+    t.checkExpect(bigAStar.determineSolution(), bigBfs.determineSolution());
+    t.checkExpect(bigAStar.expanded() <= bigBfs.expanded(), true);
+    t.checkExpect(big.manhattanToExit(0), 398);
+    t.checkExpect(big.manhattanToExit(200 * 200 - 1), 0);
+  }
+
+  void testBidirectionalBfs(Tester t) {
+    this.initAll2();
+    SearchResults both = maze2.bidirectionalBfs();
+    t.checkExpect(both.determineSolution(), maze2.bfs().determineSolution());
+    t.checkExpect(both.expanded() < maze2.bfs().expanded(), true);
+
+    Maze big = new Maze(300, 300, 1, Optional.empty(), 12, new WilsonGenerator());
+    SearchResults bigBoth = big.bidirectionalBfs();
+    SearchResults bigBfs = big.bfs();
+    t.checkExpect(bigBoth.determineSolution(), bigBfs.determineSolution());
+    t.checkExpect(bigBoth.expanded() < bigBfs.expanded(), true);
+
+    // the two sides meet straight away in a maze of two cells, and there is no meeting
+    // at all in a maze of one
+    Maze pair = new Maze(2, 1, 1, Optional.empty(), 12, new KruskalGenerator());
+    t.checkExpect(pair.bidirectionalBfs().determineSolution(),
+        new ArrayList<Cell>(List.of(pair.cellAt(0))));
+    Maze single = new Maze(1, 1, 1, Optional.empty(), 12, new KruskalGenerator());
+    t.checkExpect(single.bidirectionalBfs().determineSolution().size(), 0);
+    t.checkExpect(single.bidirectionalBfs().expanded(), 1);
+  }
+
+  void testPathIndex(Tester t) {
+    this.initAll2();
+    PathIndex index = maze2.paths();
+    t.checkExpect(maze2.paths() == index, true);
+    t.checkExpect(index.distance(new Posn(0, 0), new Posn(3, 3)), 6);
+    t.checkExpect(index.distance(new Posn(3, 3), new Posn(3, 3)), 0);
+    // d and i hang off different branches, so their path runs up through the start
+    t.checkExpect(index.path(new Posn(3, 0), new Posn(0, 2)),
+        new ArrayList<Posn>(List.of(new Posn(3, 0), new Posn(3, 1), new Posn(2, 1),
+            new Posn(2, 0), new Posn(1, 0), new Posn(0, 0), new Posn(0, 1),
+            new Posn(1, 1), new Posn(1, 2), new Posn(1, 3), new Posn(0, 3),
+            new Posn(0, 2))));
+    t.checkExpect(index.distance(new Posn(3, 0), new Posn(0, 2)), 11);
+
+    // every distance agrees with the path found by searching
+    Maze big = new Maze(150, 150, 1, Optional.empty(), 21, new WilsonGenerator());
+    PathIndex bigIndex = big.paths();
+    t.checkExpect(bigIndex.distance(new Posn(0, 0), new Posn(149, 149)),
+        big.bfs().determineSolution().size());
+    boolean consistent = true;
+    SplittableRandom rand = new SplittableRandom(3);
+    for (int i = 0; i < 200; i += 1) {
+      int a = rand.nextInt(150 * 150);
+      int b = rand.nextInt(150 * 150);
+      int[] path = bigIndex.path(a, b);
+      consistent = consistent && path.length == bigIndex.distance(a, b) + 1
+          && path[0] == a && path[path.length - 1] == b
+          && bigIndex.distance(a, b) == bigIndex.distance(b, a);
+      for (int k = 1; k < path.length; k += 1) {
+        consistent = consistent && big.walls().linked(path[k - 1], path[k]);
+      }
+    }
+    t.checkExpect(consistent, true);
+
+    t.checkConstructorExceptionType(IllegalArgumentException.class, "PathIndex",
+        new CompactMaze(3, 3));
+  }
+
+  void testSolveAll(Tester t) {
+    this.initAll2();
+    ArrayList<Posn[]> queries = new ArrayList<>();
+    queries.add(new Posn[] {new Posn(3, 0), new Posn(0, 2)});
+    queries.add(new Posn[] {new Posn(2, 2), new Posn(2, 2)});
+    queries.add(new Posn[] {new Posn(0, 0), new Posn(3, 3)});
+    ArrayList<ArrayList<Posn>> paths = maze2.solveAll(queries);
+    t.checkExpect(paths.size(), 3);
+    t.checkExpect(paths.get(0), maze2.paths().path(new Posn(3, 0), new Posn(0, 2)));
+    t.checkExpect(paths.get(1), new ArrayList<Posn>(List.of(new Posn(2, 2))));
+    t.checkExpect(paths.get(2).size(), 7);
+    // a second batch goes to the same solver, and gets the same answers
+    t.checkExpect(maze2.queries() == maze2.queries(), true);
+    t.checkExpect(maze2.solveAll(queries), paths);
+
+    // a pool of four threads answers many queries in order, each thread reusing its scratch
+    Maze big = new Maze(120, 120, 1, Optional.empty(), 8, new PrimGenerator());
+    SplittableRandom rand = new SplittableRandom(8);
+    ArrayList<Posn[]> many = new ArrayList<>();
+    for (int i = 0; i < 500; i += 1) {
+      many.add(new Posn[] {new Posn(rand.nextInt(120), rand.nextInt(120)),
+          new Posn(rand.nextInt(120), rand.nextInt(120))});
+    }
+    ForkJoinPool pool = new ForkJoinPool(4);
+    ArrayList<ArrayList<Posn>> manyPaths = new PathQueries(big.walls(), pool).solveAll(many);
+    pool.shutdown();
+    boolean inOrder = true;
+    for (int i = 0; i < many.size(); i += 1) {
+      inOrder = inOrder && manyPaths.get(i).equals(big.paths().path(many.get(i)[0],
+          many.get(i)[1]));
+    }
+    t.checkExpect(inOrder, true);
+
+    ArrayList<Posn[]> outside = new ArrayList<>();
+    outside.add(new Posn[] {new Posn(0, 0), new Posn(4, 0)});
+    t.checkExceptionType(IllegalArgumentException.class, maze2, "solveAll", outside);
+  }
+
+  void testDistanceField(Tester t) {
+    this.initAll2();
+    int[] toExit = maze2.distanceToExit();
+    t.checkExpect(maze2.distanceToExit() == toExit, true);
+    t.checkExpect(toExit[0], 6);
+    t.checkExpect(toExit[15], 0);
+    t.checkExpect(toExit[3], 11); // d is at the end of the branch through c, g and h
+
+    // from several sources at once every cell is as close as its nearest source
+    int[] field = maze2.distanceField(List.of(new Posn(0, 0), new Posn(3, 3)));
+    t.checkExpect(field[0], 0);
+    t.checkExpect(field[15], 0);
+    t.checkExpect(field[3], 5);
+    t.checkExpect(new CompactMaze(2, 1).distancesFrom(new int[] {0}),
+        new int[] {0, -1});
+
+    // the solution runs a, e, f, j, n, o, p and every other cell is a wrong move
+    t.checkExpect(maze2.onSolution(new Posn(0, 0)), true);
+    t.checkExpect(maze2.onSolution(new Posn(1, 2)), true);
+    t.checkExpect(maze2.onSolution(new Posn(3, 3)), true);
+    t.checkExpect(maze2.onSolution(new Posn(1, 0)), false);
+    t.checkExpect(maze2.solution(), maze2.dfs().determineSolution());
+    t.checkExpect(maze2.hint(new Posn(0, 0)), new Posn(0, 1));
+    t.checkExpect(maze2.hint(new Posn(1, 0)), new Posn(0, 0));
+    t.checkExpect(maze2.hint(new Posn(3, 3)), new Posn(3, 3));
+
+    ComputedPixelImage heat = maze2.renderHeatmap();
+    t.checkExpect(heat.getColorAt(35, 35), new Color(255, 0, 0));
+    // d is 11 steps from the exit, and the furthest cell is 12
+    t.checkExpect(heat.getColorAt(35, 5), new Color(255 - 255 * 11 / 12, 0, 255 * 11 / 12));
+
+    Maze big = new Maze(200, 200, 1, Optional.empty(), 2, new BacktrackerGenerator());
+    t.checkExpect(big.solution(), big.bfs().determineSolution());
+  }
+
+  void testParallelBfs(Tester t) {
+    this.initAll2();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    // in a perfect maze the levels come out in the same order as bfs visits them
+    t.checkExpect(maze2.parallelBfs(pool), maze2.bfs());
+
+    Maze big = new Maze(300, 300, 1, Optional.empty(), 17, new KruskalGenerator());
+    SearchResults parallel = big.parallelBfs(pool);
+    t.checkExpect(parallel.determineSolution(), big.bfs().determineSolution());
+    t.checkExpect(parallel.expanded(), big.bfs().expanded());
+
+    // the visit order never steps back to an earlier level
+    int[] fromStart = big.distanceField(List.of(new Posn(0, 0)));
+    boolean grouped = true;
+    int level = 0;
+    for (Iterator<Cell> it = parallel.determineSearch(); it.hasNext(); ) {
+      int d = fromStart[it.next().index(big.walls())];
+      grouped = grouped && d >= level;
+      level = d;
+    }
+    t.checkExpect(grouped, true);
+
+    // a search starts over, so the same ParallelBfs can search again
+    ParallelBfs again = new ParallelBfs(big.walls(), pool);
+    int first = again.search(0, big.walls().cells() - 1);
+    t.checkExpect(again.search(0, big.walls().cells() - 1), first);
+    t.checkExpect(again.search(5, 5), 1);
+    t.checkExpect(again.order()[0], 5);
+    pool.shutdown();
+
+    Maze single = new Maze(1, 1, 1, Optional.empty(), 17, new KruskalGenerator());
+    t.checkExpect(single.parallelBfs(ForkJoinPool.commonPool()), single.bfs());
+  }
+
+  void testBitFrontierSearch(Tester t) {
+    // widths below, across and exactly on word boundaries all shift rows differently
+    boolean agrees = true;
+    for (int width : new int[] {1, 37, 64, 100, 128}) {
+      CompactMaze walls = new CompactMaze(width, 50);
+      walls.kruskals(new EdgeWeights(width, 50, Optional.empty(), width));
+      BitFrontierSearch bits = new BitFrontierSearch(walls);
+      int from = walls.cells() / 3;
+      int[] dist = walls.distancesFrom(new int[] {from});
+
+      int[] sizes = bits.layerSizes(from);
+      int[] expected = new int[sizes.length];
+      for (int d : dist) {
+        expected[d] += 1;
+      }
+      agrees = agrees && Arrays.equals(sizes, expected) && bits.isConnected()
+          && bits.distance(from, walls.cells() - 1) == dist[walls.cells() - 1]
+          && bits.distance(from, 0) == dist[0];
+    }
+    t.checkExpect(agrees, true);
+
+    // with only some walls down, only part of the maze is reachable
+    CompactMaze partial = new CompactMaze(70, 3);
+    partial.openPassage(0, 1);
+    partial.openPassage(63, 64);
+    partial.openPassage(64, 134);
+    partial.openPassage(134, 204);
+    partial.openPassage(205, 204);
+    BitFrontierSearch bits = new BitFrontierSearch(partial);
+    t.checkExpect(bits.isConnected(), false);
+    t.checkExpect(bits.distance(63, 205), 4);
+    t.checkExpect(bits.distance(205, 63), 4);
+    t.checkExpect(bits.distance(0, 63), -1);
+    t.checkExpect(bits.layerSizes(204), new int[] {1, 2, 1, 1});
+    long[] reached = bits.reachable(1);
+    t.checkExpect(reached[0], 3L);
+    t.checkExpect(reached[1] | reached[2] | reached[3], 0L);
+  }
+
+  void testCorridorGraph(Tester t) {
+    this.initAll2();
+    // the skeleton of maze2 keeps its dead ends d, i, k and p, its junctions h and n,
+    // and the start, which is in the middle of a corridor
+    CorridorGraph graph = maze2.corridors();
+    t.checkExpect(maze2.corridors() == graph, true);
+    t.checkExpect(graph.nodeCount(), 7);
+    // a tree on n nodes has n - 1 edges
+    t.checkExpect(graph.edgeCount(), 6);
+    t.checkExpect(graph.nodeOf(1), -1); // b is a corridor between a and c
+    t.checkExpect(maze2.corridorSearch().determineSolution(),
+        maze2.bfs().determineSolution());
+
+    Maze big = new Maze(300, 300, 1, Optional.empty(), 6, new KruskalGenerator());
+    SearchResults skeleton = big.corridorSearch();
+    t.checkExpect(skeleton.determineSolution(), big.bfs().determineSolution());
+    t.checkExpect(skeleton.expanded() < big.bfs().expanded(), true);
+    t.checkExpect(big.corridors().edgeCount(), big.corridors().nodeCount() - 1);
+
+    // in a maze with a loop, the shorter way round the loop is found
+    CompactMaze loop = new CompactMaze(3, 2);
+    loop.openPassage(0, 1);
+    loop.openPassage(1, 2);
+    loop.openPassage(2, 5);
+    loop.openPassage(0, 3);
+    loop.openPassage(3, 4);
+    loop.openPassage(4, 5);
+    loop.openPassage(1, 4);
+    CorridorGraph loopGraph = new CorridorGraph(loop, new int[] {0, 5});
+    // the junctions 1 and 4 and the kept cells are joined by five corridors
+    t.checkExpect(loopGraph.nodeCount(), 4);
+    t.checkExpect(loopGraph.edgeCount(), 5);
+    loopGraph.search(loopGraph.nodeOf(0), loopGraph.nodeOf(5));
+    t.checkExpect(loopGraph.pathTo(loopGraph.nodeOf(5)).length, 4);
+    // a ring with no junctions is one corridor from a kept cell back to itself
+    CompactMaze ring = new CompactMaze(2, 2);
+    ring.openPassage(0, 1);
+    ring.openPassage(1, 3);
+    ring.openPassage(3, 2);
+    ring.openPassage(2, 0);
+    CorridorGraph ringGraph = new CorridorGraph(ring, new int[] {0});
+    t.checkExpect(ringGraph.nodeCount(), 1);
+    t.checkExpect(ringGraph.edgeCount(), 1);
+    t.checkExpect(ringGraph.length(0), 4);
+  }
+
+  void testHierarchicalPaths(Tester t) {
+    this.initAll2();
+    t.checkExpect(maze2.hierarchicalSearch().determineSolution(),
+        maze2.bfs().determineSolution());
+
+    // tiles of 2 split maze2 into four, crossed by the passages b-c, f-j, h-l and n-o
+    HierarchicalPaths quarters = new HierarchicalPaths(maze2.walls(), 2,
+        ForkJoinPool.commonPool());
+    t.checkExpect(quarters.nodeCount(), 8);
+    t.checkExpect(quarters.nodeOf(1) >= 0, true);
+    t.checkExpect(quarters.nodeOf(0) < 0, true);
+    t.checkExpect(quarters.path(3, 8).length, 12);
+    t.checkExpect(quarters.path(5, 5), new int[] {5});
+    t.checkConstructorExceptionType(IllegalArgumentException.class, "HierarchicalPaths",
+        maze2.walls(), 0, ForkJoinPool.commonPool());
+
+    // the paths found match the index of the tree exactly, whichever tiles they cross
+    Maze big = new Maze(130, 110, 1, Optional.empty(), 31, new KruskalGenerator());
+    ForkJoinPool pool = new ForkJoinPool(4);
+    HierarchicalPaths index = new HierarchicalPaths(big.walls(), 16, pool);
+    pool.shutdown();
+    SplittableRandom rand = new SplittableRandom(31);
+    boolean exact = true;
+    for (int i = 0; i < 100; i += 1) {
+      int a = rand.nextInt(130 * 110);
+      int b = rand.nextInt(130 * 110);
+      exact = exact && Arrays.equals(index.path(a, b), big.paths().path(a, b));
+    }
+    t.checkExpect(exact, true);
+    // a query inside one tile settles no more than that tile's entrances, however many
+    // the queries before it settled
+    t.checkExpect(index.path(0, 1), big.paths().path(0, 1));
+    t.checkExpect(index.settled().length <= index.tileStart(1) - index.tileStart(0) + 2,
+        true);
+    SearchResults tiled = big.hierarchicalSearch();
+    t.checkExpect(tiled.determineSolution(), big.bfs().determineSolution());
+    t.checkExpect(tiled.expanded() < big.bfs().expanded(), true);
+  }
+
+  void testRadixHeap(Tester t) {
+    RadixHeap heap = new RadixHeap();
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkExceptionType(RuntimeException.class, heap, "popMin");
+    heap.push(7, 70);
+    heap.push(3, 30);
+    heap.push(1000, 1);
+    heap.push(3, 31);
+    t.checkExpect(heap.size(), 4);
+    t.checkExpect(heap.popMin() / 10, 3);
+    t.checkExpect(heap.lastKey(), 3);
+    t.checkExpect(heap.popMin() / 10, 3);
+    // keys may come back up to the last key popped, but not below it
+    heap.push(3, 32);
+    t.checkExceptionType(IllegalArgumentException.class, heap, "push", 2, 20);
+    t.checkExpect(heap.popMin(), 32);
+    t.checkExpect(heap.popMin(), 70);
+    t.checkExpect(heap.lastKey(), 7);
+    t.checkExpect(heap.popMin(), 1);
+    t.checkExpect(heap.lastKey(), 1000);
+    t.checkExpect(heap.isEmpty(), true);
+  }
+
+  // determines the total weight of the passages of the given path, which runs back from
+  // the cell before the exit to the start, as a search gives it
+  int pathCost(Maze maze, ArrayList<Cell> path) {
+    CompactMaze walls = maze.walls();
+    int[] weights = maze.passageWeights();
+    int at = walls.cells() - 1;
+    int cost = 0;
+    for (Cell c : path) {
+      int next = c.index(walls);
+      cost += weights[walls.wallBetween(at, next)];
+      at = next;
+    }
+    return cost;
+  }
+
+  void testBraidAndDijkstra(Tester t) {
+    t.checkConstructorExceptionType(IllegalArgumentException.class, "BraidGenerator",
+        new KruskalGenerator(), 1.5);
+    CompactMaze perfect = new CompactMaze(60, 40);
+    new KruskalGenerator().generate(perfect, Optional.empty(), 4);
+    CompactMaze braided = new CompactMaze(60, 40);
+    new BraidGenerator(new KruskalGenerator(), 0.25).generate(braided, Optional.empty(), 4);
+    CompactMaze again = new CompactMaze(60, 40);
+    new BraidGenerator(new KruskalGenerator(), 0.25).generate(again, Optional.empty(), 4);
+
+    // the perfect maze is still under the braid, with about a quarter of the other
+    // 2300 inner walls knocked down too
+    boolean keepsTree = true;
+    for (int i = 0; i < perfect.cells(); i += 1) {
+      keepsTree = keepsTree && (!perfect.openRight(i) || braided.openRight(i))
+          && (!perfect.openDown(i) || braided.openDown(i));
+    }
+    t.checkExpect(keepsTree, true);
+    t.checkRange(braided.passages() - perfect.passages(), 450, 700);
+    t.checkExpect(braided.sameWalls(again), true);
+    t.checkExpect(braided.isPerfect(), false);
+    CompactMaze none = new CompactMaze(60, 40);
+    new BraidGenerator(new KruskalGenerator(), 0).generate(none, Optional.empty(), 4);
+    t.checkExpect(none.sameWalls(perfect), true);
+
+    // with loops, Dijkstra's path costs less than the shortest one, which costs less
+    // than the one dfs finds. Every passage is weighted, loops included.
+    Maze loops = new Maze(80, 80, 1, Optional.empty(), 5,
+        new BraidGenerator(new BacktrackerGenerator(), 0.3));
+    int[] weights = loops.passageWeights();
+    boolean allDrawn = true;
+    for (int i = 0; i < loops.walls().cells(); i += 1) {
+      allDrawn = allDrawn && (!loops.walls().openRight(i) || weights[2 * i] >= 201)
+          && (!loops.walls().openDown(i) || weights[2 * i + 1] >= 201);
+    }
+    t.checkExpect(allDrawn, true);
+    SearchResults cheapest = loops.dijkstra();
+    int dijkstraCost = this.pathCost(loops, cheapest.determineSolution());
+    int bfsCost = this.pathCost(loops, loops.bfs().determineSolution());
+    t.checkExpect(dijkstraCost < bfsCost, true);
+    t.checkExpect(bfsCost < this.pathCost(loops, loops.dfs().determineSolution()), true);
+    t.checkExpect(cheapest.determineSolution().size()
+        >= loops.bfs().determineSolution().size(), true);
+
+    // the weights of the Edges of a seeded maze make its only path also the cheapest
+    this.initAll2();
+    t.checkExpect(maze2.dijkstra().determineSolution(), maze2.bfs().determineSolution());
+    t.checkExpect(maze2.passageWeights()[maze2.walls().wallBetween(0, 1)],
+        ab2.weight());
+  }
+
+  // replays the moves of a wall follower over the given maze, checking each one is
+  // allowed, and returns how many there were, or -1 if one went through a wall or it
+  // took more than 20000
+  int followWall(Tester t, IMazeView maze, Posn start, Posn goal) {
+    WallFollower follower = new WallFollower(maze, start, goal);
+    Posn at = start;
+    int moves = 0;
+    while (follower.hasNext()) {
+      if (moves == 20000) {
+        return -1;
+      }
+      String key = follower.next();
+      int h = Arrays.asList(WallFollower.KEYS).indexOf(key);
+      Posn next = new Posn(at.x + WallFollower.DX[h], at.y + WallFollower.DY[h]);
+      if (!maze.playerCanMove(at, next)) {
+        return -1;
+      }
+      at = next;
+      moves += 1;
+    }
+    t.checkExpect(at, goal);
+    return moves;
+  }
+
+  void testWallFollower(Tester t) {
+    // heading down first takes it straight along maze2's path, with no dead ends
+    this.initAll2();
+    WallFollower onMaze2 = new WallFollower(maze2, new Posn(0, 0), new Posn(3, 3));
+    t.checkExpect(onMaze2.hasNext(), true);
+    t.checkExpect(this.followWall(t, maze2, new Posn(0, 0), new Posn(3, 3)), 6);
+    t.checkExpect(new WallFollower(maze2, new Posn(3, 3), new Posn(3, 3)).hasNext(), false);
+
+    CompactMaze perfect = new CompactMaze(60, 40);
+    new KruskalGenerator().generate(perfect, Optional.empty(), 4);
+    t.checkRange(this.followWall(t, perfect, new Posn(0, 0), new Posn(59, 39)), 98,
+        20000);
+    CompactMaze braided = new CompactMaze(60, 40);
+    new BraidGenerator(new KruskalGenerator(), 0.25).generate(braided, Optional.empty(), 4);
+    t.checkRange(this.followWall(t, braided, new Posn(0, 0), new Posn(59, 39)), 98,
+        20000);
+
+    // starting inside a maze with loops, counting its turns keeps it from going around
+    // a loop forever
+    CompactMaze loops = new CompactMaze(20, 20);
+    new BraidGenerator(new KruskalGenerator(), 0.3).generate(loops, Optional.empty(), 7);
+    int trapped = 0;
+    for (int y = 0; y < 20; y += 1) {
+      for (int x = 0; x < 20; x += 1) {
+        if (this.followWall(t, loops, new Posn(x, y), new Posn(19, 19)) < 0) {
+          trapped += 1;
+        }
+      }
+    }
+    t.checkExpect(trapped, 0);
+    t.checkExpect(this.followWall(t, loops, new Posn(10, 10), new Posn(19, 19)) > 0, true);
+
+    // a cell with no way out
+    WallFollower stuck = new WallFollower(new CompactMaze(3, 3), new Posn(0, 0),
+        new Posn(2, 2));
+    t.checkExceptionType(RuntimeException.class, stuck, "next");
+    t.checkExpect(stuck.position(), new Posn(0, 0));
+  }
+
+  void testDeadEndFiller(Tester t) {
+    t.checkConstructorExceptionType(IllegalArgumentException.class, "DeadEndFiller",
+        new CompactMaze(4, 4), 0, ForkJoinPool.commonPool());
+
+    // in a perfect maze everything but the path to the exit is filled
+    this.initAll2();
+    SearchResults filled = maze2.deadEndFill(new ForkJoinPool(4));
+    t.checkExpect(filled.determineSolution(), maze2.bfs().determineSolution());
+    t.checkExpect(filled.expanded(), 16 - filled.determineSolution().size() - 1);
+
+    // bands of one row pass most fills on to their neighbors, and still fill the same
+    CompactMaze perfect = new CompactMaze(60, 40);
+    new KruskalGenerator().generate(perfect, Optional.empty(), 4);
+    DeadEndFiller oneBand = new DeadEndFiller(perfect, 60, new ForkJoinPool(4));
+    DeadEndFiller rows = new DeadEndFiller(perfect, 1, new ForkJoinPool(4));
+    t.checkExpect(oneBand.bandCount(), 1);
+    t.checkExpect(rows.bandCount(), 40);
+    t.checkExpect(rows.fill(), oneBand.fill());
+    t.checkExpect(oneBand.sweeps(), 1);
+    t.checkExpect(rows.sweeps() > 1, true);
+    t.checkExpect(rows.filledCells(), oneBand.filledCells());
+    int[] parent = rows.parentsFrom(0);
+    int pathLength = 0;
+    for (int at = perfect.cells() - 1; at != -1; at = parent[at]) {
+      pathLength += 1;
+    }
+    t.checkExpect(rows.filledCount(), perfect.cells() - pathLength);
+
+    // in a braided maze the loops are left, but no dead end
+    CompactMaze braided = new CompactMaze(60, 40);
+    new BraidGenerator(new KruskalGenerator(), 0.1).generate(braided, Optional.empty(), 4);
+    DeadEndFiller loops = new DeadEndFiller(braided, 3, new ForkJoinPool(4));
+    loops.fill();
+    boolean noDeadEnds = true;
+    for (int i = 0; i < braided.cells(); i += 1) {
+      noDeadEnds = noDeadEnds && !loops.isDeadEnd(i);
+    }
+    t.checkExpect(noDeadEnds, true);
+    t.checkExpect(loops.filledCount() < rows.filledCount(), true);
+    Maze loopMaze = new Maze(80, 80, 1, Optional.empty(), 5,
+        new BraidGenerator(new BacktrackerGenerator(), 0.3));
+    t.checkExpect(loopMaze.deadEndFill(new ForkJoinPool(4)).determineSolution().size(),
+        loopMaze.bfs().determineSolution().size());
+  }
+
+  void testSearchStream(Tester t) {
+    this.initAll2();
+    // nothing is searched until the first cell is asked for
+    SearchStream breadth = maze2.searchStream(false);
+    t.checkExpect(breadth.expanded(), 0);
+    t.checkExpect(breadth.hasNext(), true);
+    t.checkExpect(breadth.next(), maze2.cellAt(0));
+    t.checkExpect(breadth.expanded(), 1);
+
+    // the cells come out in the same order as a whole search, ending at the exit
+    Iterator<Cell> whole = maze2.bfs().determineSearch();
+    t.checkExpect(whole.next(), maze2.cellAt(0));
+    while (breadth.hasNext()) {
+      t.checkExpect(breadth.next(), whole.next());
+    }
+    t.checkExpect(whole.hasNext(), false);
+    t.checkExpect(breadth.expanded(), maze2.bfs().expanded());
+    t.checkExpect(breadth.solution(), maze2.bfs().determineSolution());
+    t.checkExceptionType(NoSuchElementException.class, breadth, "next");
+
+    // asking for the solution first runs the rest of the search
+    SearchStream depth = maze2.searchStream(true);
+    t.checkExpect(depth.solution(), maze2.dfs().determineSolution());
+    t.checkExpect(depth.expanded(), maze2.dfs().expanded());
+    t.checkExpect(depth.hasNext(), false);
+
+    // in a maze with loops a stack holds some cells twice, which are skipped
+    Maze loops = new Maze(40, 30, 1, Optional.empty(), 5,
+        new BraidGenerator(new KruskalGenerator(), 0.3));
+    SearchStream looped = loops.searchStream(true);
+    Iterator<Cell> loopedWhole = loops.dfs().determineSearch();
+    boolean same = true;
+    while (looped.hasNext()) {
+      same = same && looped.next() == loopedWhole.next();
+    }
+    t.checkExpect(same && !loopedWhole.hasNext(), true);
+    t.checkExpect(looped.solution(), loops.dfs().determineSolution());
+  }
+
+  void testIntCollections(Tester t) {
+    // the same adds come out in opposite orders
+    IIntCollection queue = new IntQueue(4);
+    IIntCollection stack = new IntStack(4);
+    int[] values = {1, 2, 3};
+    queue.addAll(values, 3);
+    stack.addAll(values, 3);
+    queue.add(4);
+    stack.add(4);
+    t.checkExpect(queue.size(), 4);
+    t.checkExpect(queue.peek(), 1);
+    t.checkExpect(stack.peek(), 4);
+    t.checkExpect(queue.pop(), 1);
+    t.checkExpect(stack.pop(), 4);
+    t.checkExpect(queue.pop(), 2);
+    t.checkExpect(stack.pop(), 3);
+
+    // the queue wraps around its ring, and unwraps it when it has to grow
+    queue.add(5);
+    t.checkExpect(queue.size(), 3);
+    queue.addAll(new int[] {6, 7, 8, 9}, 3);
+    int[] into = new int[3];
+    t.checkExpect(queue.drain(into), 3);
+    t.checkExpect(into, new int[] {3, 4, 5});
+    t.checkExpect(queue.drain(into), 3);
+    t.checkExpect(into, new int[] {6, 7, 8});
+    t.checkExpect(queue.drain(into), 0);
+    t.checkExpect(queue.isEmpty(), true);
+
+    stack.addAll(new int[] {5, 6, 7, 8, 9}, 5);
+    t.checkExpect(stack.drain(into), 3);
+    t.checkExpect(into, new int[] {9, 8, 7});
+    t.checkExpect(stack.size(), 4);
+    t.checkExpect(stack.pop(), 6);
+
+    // ints added or drained across the end of the ring are split in two
+    IIntCollection wrapped = new IntQueue(4);
+    wrapped.addAll(values, 3);
+    wrapped.pop();
+    wrapped.pop();
+    wrapped.addAll(new int[] {4, 5, 6}, 3);
+    int[] all = new int[5];
+    t.checkExpect(wrapped.drain(all), 4);
+    t.checkExpect(all, new int[] {3, 4, 5, 6, 0});
+
+    // a long run through a small queue keeps its order
+    IntQueue small = new IntQueue(2);
+    boolean inOrder = true;
+    int expected = 0;
+    for (int i = 0; i < 1000; i += 1) {
+      small.add(i);
+      if (i % 3 == 0) {
+        inOrder = inOrder && small.pop() == expected;
+        expected += 1;
+      }
+    }
+    while (!small.isEmpty()) {
+      inOrder = inOrder && small.pop() == expected;
+      expected += 1;
+    }
+    t.checkExpect(inOrder && expected == 1000, true);
+
+    t.checkExceptionType(NoSuchElementException.class, new IntQueue(), "pop");
+    t.checkExceptionType(NoSuchElementException.class, new IntStack(), "peek");
+  }
+
+  void testChunkedMaze(Tester t) {
+    t.checkConstructorExceptionType(IllegalArgumentException.class, "ChunkedMaze",
+        1, 4, Optional.empty(), 5L);
+
+    // a cache of two chunks thrashes over a window of nine, but faults the same walls
+    // back in as a cache big enough to hold them all
+    ChunkedMaze small = new ChunkedMaze(8, 2, Optional.empty(), 5);
+    ChunkedMaze large = new ChunkedMaze(8, 16, Optional.empty(), 5);
+    int open = 0;
+    boolean agree = true;
+    for (int y = -8; y < 16; y += 1) {
+      for (int x = -8; x < 16; x += 1) {
+        Posn here = new Posn(x, y);
+        agree = agree && small.playerCanMove(here, new Posn(x + 1, y))
+            == large.playerCanMove(here, new Posn(x + 1, y))
+            && small.playerCanMove(here, new Posn(x, y + 1))
+            == large.playerCanMove(here, new Posn(x, y + 1));
+        if (x < 15 && large.playerCanMove(here, new Posn(x + 1, y))) {
+          open += 1;
+        }
+        if (y < 15 && large.playerCanMove(here, new Posn(x, y + 1))) {
+          open += 1;
+        }
+      }
+    }
+    t.checkExpect(agree, true);
+    // nine perfect chunks of 64 cells, joined by one door along each of 12 shared sides
+    t.checkExpect(open, 9 * 63 + 12);
+    t.checkExpect(small.loadedChunks(), 2);
+    t.checkExpect(large.loadedChunks(), 9);
+    t.checkExpect(large.misses(), 9L);
+    t.checkExpect(large.evictions(), 0L);
+    t.checkExpect(small.evictions(), small.misses() - 2);
+    t.checkExpect(small.bytesUsed() <= 2 * new CompactMaze(8, 8).bytesUsed(), true);
+
+    // moving is symmetric, and only between neighbors
+    t.checkExpect(large.playerCanMove(new Posn(0, 0), new Posn(2, 0)), false);
+    t.checkExpect(large.playerCanMove(new Posn(7, 3), new Posn(8, 3)),
+        large.playerCanMove(new Posn(8, 3), new Posn(7, 3)));
+
+    // the start keeps its color, and colors live in the chunk of their cell
+    large.colorCell(new Posn(0, 0), Color.cyan);
+    large.colorCell(new Posn(-3, 9), Color.cyan);
+    t.checkExpect(large.colorOf(new Posn(0, 0)), Color.green);
+    t.checkExpect(large.colorOf(new Posn(-3, 9)), Color.cyan);
+    ComputedPixelImage cpi = large.renderWindow(new Posn(-4, 8), 2, 2, 6);
+    t.checkExpect(cpi.getColorAt(9, 9), Color.cyan);
+
+    // a trail is set aside when its chunk is evicted, and painted back when it returns
+    ChunkedMaze one = new ChunkedMaze(8, 1, Optional.empty(), 5);
+    one.colorCell(new Posn(3, 2), Color.cyan);
+    one.colorCell(new Posn(4, 2), Color.BLUE);
+    t.checkExpect(one.chunkAt(new Posn(0, 0)).painted(),
+        new int[] {(19 << 8) | 3, (20 << 8) | 4});
+    t.checkExpect(one.colorOf(new Posn(20, 20)), Color.LIGHT_GRAY);
+    t.checkExpect(one.trailChunks(), 1);
+    t.checkExpect(one.bytesUsed(), new CompactMaze(8, 8).bytesUsed() + 8);
+    t.checkExpect(one.colorOf(new Posn(3, 2)), Color.cyan);
+    t.checkExpect(one.colorOf(new Posn(4, 2)), Color.BLUE);
+    t.checkExpect(one.trailChunks(), 0);
+    t.checkExpect(one.evictions(), 2L);
+    t.checkExpect(new CompactMaze(8, 8).painted(), new int[0]);
+
+    // a trail across far more chunks than are kept only keeps the latest of them
+    ChunkedMaze walk = new ChunkedMaze(8, 2, Optional.empty(), 5);
+    for (int x = 1; x < 8 * 40; x += 1) {
+      walk.colorCell(new Posn(x, 1), Color.cyan);
+    }
+    t.checkExpect(walk.trailChunks(), ChunkedMaze.TRAILS_PER_CHUNK * 2);
+    // two loaded chunks with their colors, and a row of 8 cells in each kept trail
+    t.checkExpect(walk.bytesUsed() <= 2 * (new CompactMaze(8, 8).bytesUsed() + 64)
+        + ChunkedMaze.TRAILS_PER_CHUNK * 2 * 8 * 4, true);
+    t.checkExpect(walk.colorOf(new Posn(8 * 39 - 1, 1)), Color.cyan);
+    t.checkExpect(walk.colorOf(new Posn(3, 1)), Color.LIGHT_GRAY);
+  }
+
+  void testTiledKruskal(Tester t) {
+    EdgeWeights weights = new EdgeWeights(333, 250, Optional.of(true), 99);
+
+    CompactMaze oneThread = new CompactMaze(333, 250);
+    new TiledKruskal(new ForkJoinPool(1), 4000).generate(oneThread, weights);
+    CompactMaze fourThreads = new CompactMaze(333, 250);
+    new TiledKruskal(new ForkJoinPool(4), 4000).generate(fourThreads, weights);
+    CompactMaze oneTile = new CompactMaze(333, 250);
+    new TiledKruskal(new ForkJoinPool(4), 333 * 250).generate(oneTile, weights);
+
+    t.checkExpect(oneThread.isPerfect(), true);
+    // the same weights make the same maze however many threads stitch it
+    t.checkExpect(fourThreads.sameWalls(oneThread), true);
+
+    // with a single tile this is exactly Kruskal's algorithm
+    CompactMaze sequential = new CompactMaze(333, 250);
+    sequential.kruskals(weights);
+    t.checkExpect(oneTile.sameWalls(sequential), true);
+
+    // the horizontal bias still favors passages between columns
+    int right = 0;
+    int down = 0;
+    for (int i = 0; i < oneThread.cells(); i += 1) {
+      if (oneThread.openRight(i)) {
+        right += 1;
+      }
+      if (oneThread.openDown(i)) {
+        down += 1;
+      }
+    }
+    t.checkExpect(right > 2 * down, true);
+
+    // a maze narrower than a word, or smaller than a tile, is still perfect
+    CompactMaze narrow = new CompactMaze(3, 500);
+    new TiledKruskal(new ForkJoinPool(4), 1).generate(narrow,
+        new EdgeWeights(3, 500, Optional.empty(), 5));
+    t.checkExpect(narrow.isPerfect(), true);
+    CompactMaze tiny = new CompactMaze(2, 2);
+    new TiledKruskal().generate(tiny, new EdgeWeights(2, 2, Optional.empty(), 5));
+    t.checkExpect(tiny.isPerfect(), true);
+
+    // the default tiles are the same size on any pool, so a seed is the same maze on any
+    // machine
+    CompactMaze onOne = new CompactMaze(600, 400);
+    new TiledKruskal(new ForkJoinPool(1), 0).generate(onOne, Optional.empty(), 21);
+    CompactMaze onFour = new CompactMaze(600, 400);
+    new TiledKruskal(new ForkJoinPool(4), 0).generate(onFour, Optional.empty(), 21);
+    t.checkExpect(onFour.sameWalls(onOne), true);
+    t.checkExpect(onOne.isPerfect(), true);
+  }
+
+  void testEllerGenerator(Tester t) {
+    CompactMaze walls = new CompactMaze(70, 90);
+    new EllerGenerator(70, Optional.empty(), 3).generate(90, walls);
+    t.checkExpect(walls.isPerfect(), true);
+
+    // the same seed streams the same rows
+    CompactMaze again = new CompactMaze(70, 90);
+    new EllerGenerator(70, Optional.empty(), 3).generate(90, again);
+    t.checkExpect(again.sameWalls(walls), true);
+
+    CompactMaze horizontal = new CompactMaze(70, 90);
+    new EllerGenerator(70, Optional.of(true), 3).generate(90, horizontal);
+    t.checkExpect(horizontal.isPerfect(), true);
+    CompactMaze vertical = new CompactMaze(70, 90);
+    new EllerGenerator(70, Optional.of(false), 3).generate(90, vertical);
+    t.checkExpect(vertical.isPerfect(), true);
+
+    // a very tall maze can be streamed without keeping it
+    PassageCounter counter = new PassageCounter();
+    new EllerGenerator(5, Optional.empty(), 8).generate(200000, counter);
+    t.checkExpect(counter.rows, 200000);
+    t.checkExpect(counter.passages, 5 * 200000 - 1);
+
+    // single columns and rows are a straight corridor
+    CompactMaze column = new CompactMaze(1, 6);
+    new EllerGenerator(1, Optional.empty(), 3).generate(6, column);
+    t.checkExpect(column.isPerfect(), true);
+    CompactMaze row = new CompactMaze(6, 1);
+    new EllerGenerator(6, Optional.empty(), 3).generate(1, row);
+    t.checkExpect(row.isPerfect(), true);
+  }
+
+  void testGenerators(Tester t) {
+    ArrayList<IMazeGenerator> generators = new ArrayList<>(List.of(
+        new KruskalGenerator(), new PrimGenerator(), new BacktrackerGenerator(),
+        new WilsonGenerator(), new EllerMazeGenerator(), new TiledKruskal()));
+
+    for (IMazeGenerator generator : generators) {
+      for (Optional<Boolean> bias : List.of(Optional.<Boolean>empty(), Optional.of(true),
+          Optional.of(false))) {
+        CompactMaze walls = new CompactMaze(45, 31);
+        generator.generate(walls, bias, 77);
+        t.checkExpect(walls.isPerfect(), true);
+
+        // the same seed always knocks down the same walls
+        CompactMaze again = new CompactMaze(45, 31);
+        generator.generate(again, bias, 77);
+        t.checkExpect(again.sameWalls(walls), true);
+      }
+    }
+
+    // Kruskal's over packed walls makes the same maze as the Node and Edge version
+    Maze generated = new Maze(30, 20, 10, Optional.empty(), 5, new KruskalGenerator());
+    t.checkExpect(generated.walls().sameWalls(
+        new Maze(30, 20, 10, Optional.empty(), 5).walls()), true);
+
+    // the Cells of a generated maze are linked exactly where its walls are down
+    Maze prim = new Maze(12, 9, 10, Optional.empty(), 5, new PrimGenerator());
+    boolean linkedAsWalls = true;
+    for (int y = 0; y < 9; y += 1) {
+      for (int x = 0; x < 11; x += 1) {
+        boolean cellsLinked = prim.cellAt(new Posn(x, y))
+            .isLinkedTo(prim.cellAt(new Posn(x + 1, y))).isPresent();
+        linkedAsWalls = linkedAsWalls
+            && cellsLinked == prim.walls().openRight(prim.walls().index(x, y));
+      }
+    }
+    t.checkExpect(linkedAsWalls, true);
+    t.checkExpect(prim.bfs().determineSolution().isEmpty(), false);
+  }
+
+  void testIntMinHeap(Tester t) {
+    IntMinHeap heap = new IntMinHeap(6);
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkExpect(heap.insertOrDecrease(3, 40), true);
+    t.checkExpect(heap.insertOrDecrease(1, 10), true);
+    t.checkExpect(heap.insertOrDecrease(5, 30), true);
+    t.checkExpect(heap.insertOrDecrease(0, 20), true);
+
+    // a priority can only ever be lowered
+    t.checkExpect(heap.insertOrDecrease(3, 50), false);
+    t.checkExpect(heap.insertOrDecrease(3, 5), true);
+    t.checkExpect(heap.contains(3), true);
+    t.checkExpect(heap.size(), 4);
+    t.checkExpect(heap.minPriority(), 5);
+
+    t.checkExpect(heap.popMin(), 3);
+    t.checkExpect(heap.contains(3), false);
+    t.checkExpect(heap.popMin(), 1);
+    t.checkExpect(heap.popMin(), 0);
+    t.checkExpect(heap.popMin(), 5);
+    t.checkExpect(heap.isEmpty(), true);
+    t.checkExceptionType(RuntimeException.class, heap, "popMin");
+  }
+
+  void testLinkNode(Tester t) {
     initAll2();
 
     // Create a new node and test connecting it
@@ -539,8 +1584,10 @@ class ExampleMaze {
     // Test that nodes aren't connected before
     t.checkExpect(a2.sharesEdgeWith(testNode), false);
 
-    // Connect the nodes and check that connection exists
-    Edge newEdge = testCell.connectNode(testNode, 1);
+    // Connect the nodes by the weight of a seeded wall and check that connection exists
+    int weight = new EdgeWeights(2, 1, Optional.empty(), 1).weight(0);
+    Edge newEdge = testCell.linkNode(testNode, weight);
+    t.checkExpect(newEdge.weight(), weight);
     t.checkExpect(a2.sharesEdgeWith(testNode), true);
     t.checkExpect(testNode.sharesEdgeWith(a2), true);
 
@@ -685,6 +1732,74 @@ class ExampleMaze {
     t.checkExpect(testUF.findBlob(b1) == testUF.findBlob(c1), true);
   }
 
+  void testIntUnionFind(Tester t) {
+    IntUnionFind uf = new IntUnionFind(6);
+
+    // Initially, every index is its own master
+    t.checkExpect(uf.components(), 6);
+    t.checkExpect(uf.find(3), 3);
+    t.checkExpect(uf.sameBlob(0, 1), false);
+
+    // Uniting two separate blobs reduces the number of components
+    t.checkExpect(uf.union(0, 1), true);
+    t.checkExpect(uf.union(2, 3), true);
+    t.checkExpect(uf.union(1, 3), true);
+    t.checkExpect(uf.components(), 3);
+    t.checkExpect(uf.sameBlob(0, 2), true);
+    t.checkExpect(uf.sameBlob(0, 4), false);
+
+    // Uniting indices already in the same blob changes nothing
+    t.checkExpect(uf.union(0, 3), false);
+    t.checkExpect(uf.components(), 3);
+
+    // After a find, the path to the master is compressed
+    int master = uf.find(3);
+    t.checkExpect(uf.parent(3), master);
+
+    // A long chain of unions is still answered without recursion
+    IntUnionFind chain = new IntUnionFind(5000);
+    for (int i = 1; i < 5000; i += 1) {
+      chain.union(i - 1, i);
+    }
+    t.checkExpect(chain.components(), 1);
+    t.checkExpect(chain.sameBlob(0, 4999), true);
+  }
+
+  void testIsComplete(Tester t) {
+    initEx1();
+
+    UnionFind testUF = new UnionFind(new ArrayList<Node>(Arrays.asList(a1, b1, c1)),
+        new ArrayList<Edge>());
+    t.checkExpect(testUF.isComplete(), false);
+    testUF.union(a1, b1);
+    t.checkExpect(testUF.isComplete(), false);
+    testUF.union(c1, b1);
+    t.checkExpect(testUF.isComplete(), true);
+    t.checkExpect(testUF.findBlob(c1) == testUF.findBlob(a1), true);
+  }
+
+  void testKruskals(Tester t) {
+    initEx1();
+
+    // The cheapest edges are accepted until the five edges of the spanning tree
+    // are found, at which point the remaining edges are never examined
+    t.checkExpect(ex1.kruskals(),
+        new ArrayList<Edge>(Arrays.asList(ec1, cd1, ab1, be1, fd1)));
+    t.checkExpect(ex1.isComplete(), true);
+
+    // Edges which were rejected or never reached are removed from their nodes
+    t.checkExpect(b1.sharesEdgeWith(c1), false);
+    t.checkExpect(a1.sharesEdgeWith(e1), false);
+    t.checkExpect(b1.sharesEdgeWith(f1), false);
+
+    // Edges in the tree are still shared by both of their nodes
+    t.checkExpect(e1.sharesEdgeWith(c1), true);
+    t.checkExpect(c1.sharesEdgeWith(d1), true);
+    t.checkExpect(a1.sharesEdgeWith(b1), true);
+    t.checkExpect(b1.sharesEdgeWith(e1), true);
+    t.checkExpect(f1.sharesEdgeWith(d1), true);
+  }
+
   void testNodePosition(Tester t) {
     initEx1();
 
@@ -725,6 +1840,7 @@ class ExampleMaze {
 
     // Check the before state of the queue, where it is NOT empty
     t.checkExpect(q.isEmpty(), false);
+    t.checkExpect(q.size(), 3);
 
     // Remove all of the items and ensure that they return the appropriate
     // Integer respective to their position
@@ -734,6 +1850,7 @@ class ExampleMaze {
 
     // Check that the Queue is now empty
     t.checkExpect(q.isEmpty(), true);
+    t.checkExpect(q.size(), 0);
 
     // Ensure that you cannot remove any items from an empty queue (exception is
     // thrown)
@@ -748,6 +1865,7 @@ class ExampleMaze {
 
     // Check the before state of the queue, where it is NOT empty
     t.checkExpect(s.isEmpty(), false);
+    t.checkExpect(s.size(), 3);
 
     // Remove all of the items and ensure that they return the appropriate
     // Integer respective to their position
@@ -757,6 +1875,7 @@ class ExampleMaze {
 
     // Check that the Queue is now empty
     t.checkExpect(s.isEmpty(), true);
+    t.checkExpect(s.size(), 0);
 
     // Ensure that you cannot remove any items from an empty queue (exception is
     // thrown)
@@ -791,6 +1910,57 @@ class ExampleMaze {
     t.checkExpect(fd1.minEdge(containsSameWeight), fd1);
   }
 
+  void testEdgeKeys(Tester t) {
+    Utils u = new Utils();
+    long key = u.packEdgeKey(402, 17);
+    t.checkExpect(u.keyWeight(key), 402);
+    t.checkExpect(u.keyId(key), 17);
+
+    // keys order by weight first, then by edge id
+    t.checkExpect(u.packEdgeKey(1, 900) < u.packEdgeKey(2, 0), true);
+    t.checkExpect(u.packEdgeKey(2, 3) < u.packEdgeKey(2, 4), true);
+  }
+
+  void testRadixsort(Tester t) {
+    Utils u = new Utils();
+
+    // small enough to be sorted on one thread
+    long[] keys = new long[5000];
+    for (int i = 0; i < keys.length; i += 1) {
+      keys[i] = u.packEdgeKey((i * 7919) % 2000 + 1, (i * 104729) % (1 << 30));
+    }
+    long[] expected = keys.clone();
+    Arrays.sort(expected);
+    u.radixsort(keys, new long[keys.length], 0);
+    t.checkExpect(Arrays.equals(keys, expected), true);
+
+    // large enough to take the parallel path, with ids already ascending so that
+    // only the weight bits need sorting
+    long[] bigKeys = new long[Utils.PARALLEL_RADIX_THRESHOLD + 1234];
+    for (int i = 0; i < bigKeys.length; i += 1) {
+      bigKeys[i] = u.packEdgeKey((i * 31) % 2000 + 1, i);
+    }
+    long[] bigExpected = bigKeys.clone();
+    Arrays.sort(bigExpected);
+    u.radixsort(bigKeys, new long[bigKeys.length], 32);
+    t.checkExpect(Arrays.equals(bigKeys, bigExpected), true);
+
+    // keys which all share the same bytes are left as they were
+    long[] same = new long[] {u.packEdgeKey(5, 0), u.packEdgeKey(5, 1)};
+    u.radixsort(same, new long[2], 32);
+    t.checkExpect(same[0], u.packEdgeKey(5, 0));
+    t.checkExpect(same[1], u.packEdgeKey(5, 1));
+  }
+
+  void testSortByWeight(Tester t) {
+    initEx1();
+
+    ArrayList<Edge> edges = new ArrayList<>(Arrays.asList(bf1, ae1, ec1, fd1, bc1, ab1));
+    new Utils().sortByWeight(edges);
+    // edges of the same weight stay in the order they were given
+    t.checkExpect(edges, new ArrayList<>(Arrays.asList(ec1, ab1, bc1, bf1, ae1, fd1)));
+  }
+
   void testRemoveFromNode(Tester t) {
     initEx1();
 
@@ -804,3 +1974,16 @@ class ExampleMaze {
     t.checkExpect(e1.sharesEdgeWith(c1), false);
   }
 }
+
+// Counts the rows and passages streamed to it, without keeping any of them
+class PassageCounter implements IRowConsumer {
+  int rows = 0;
+  int passages = 0;
+
+  public void acceptRow(int rowIdx, long[] openRight, long[] openDown) {
+    this.rows += 1;
+    for (int i = 0; i < openRight.length; i += 1) {
+      this.passages += Long.bitCount(openRight[i]) + Long.bitCount(openDown[i]);
+    }
+  }
+}